@@ -0,0 +1,59 @@
+package ejb;
+
+import ejb.local.CacheManagerEJBLocal;
+import entities.CacheStatistics;
+import exceptions.ReadException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * EJB class reading the Hibernate statistics of the second-level cache used
+ * for {@link entities.Tag} and {@link entities.Supplier} reference data.
+ *
+ * @author Alexander Epelde
+ */
+@Stateless
+public class CacheManagerEJB implements CacheManagerEJBLocal {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("our_shop");
+
+    /**
+     * Entity manager object for interacting with the database.
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Retrieves the hit and miss counters of the second-level and query
+     * caches.
+     *
+     * @return The {@link CacheStatistics} object.
+     * @throws ReadException If there is any exception during processing.
+     */
+    @Override
+    public CacheStatistics getStatistics() throws ReadException {
+        try {
+            Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+            CacheStatistics result = new CacheStatistics();
+            result.setSecondLevelCacheHitCount(statistics.getSecondLevelCacheHitCount());
+            result.setSecondLevelCacheMissCount(statistics.getSecondLevelCacheMissCount());
+            result.setSecondLevelCachePutCount(statistics.getSecondLevelCachePutCount());
+            result.setQueryCacheHitCount(statistics.getQueryCacheHitCount());
+            result.setQueryCacheMissCount(statistics.getQueryCacheMissCount());
+            result.setQueryCachePutCount(statistics.getQueryCachePutCount());
+            LOGGER.log(Level.INFO, "CacheManager: {0}", result);
+            return result;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "CacheManager: Exception reading cache statistics.", e);
+            throw new ReadException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,626 @@
+package ejb;
+
+import ejb.local.CatalogManagerEJBLocal;
+import entities.FacetCount;
+import entities.ProductFacets;
+import entities.ProductSummary;
+import entities.Suggestion;
+import entities.Supplier;
+import entities.Tag;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import search.ProductFacetIndex;
+import search.ProductSearchIndex;
+import search.SuggestionIndex;
+
+/**
+ * Singleton EJB holding the catalog in memory. Readers get the current
+ * {@link CatalogSnapshot} through a volatile field, so they never lock nor
+ * hit the database. Writers notify the catalog from inside their
+ * transaction: the new state is read right away, and the copy-on-write
+ * change is applied to the snapshot only after that transaction commits.
+ * The full-text {@link ProductSearchIndex}, the {@link ProductFacetIndex} and
+ * the {@link SuggestionIndex} are kept up to date by the same changes.
+ *
+ * @author Alexander Epelde
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class CatalogManagerEJB implements CatalogManagerEJBLocal {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("our_shop");
+
+    /**
+     * Number of full reads of the catalog a reload tries before it reads
+     * while holding {@link #writeLock}.
+     */
+    private static final int RELOAD_ATTEMPTS = 3;
+
+    /**
+     * Entity manager object for interacting with the database.
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Registry of the current transaction, used to defer changes until it
+     * commits.
+     */
+    @Resource
+    private TransactionSynchronizationRegistry registry;
+
+    /**
+     * Lock serializing the writers of the snapshot. Readers never take it.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Number of changes applied to the snapshot, guarded by
+     * {@link #writeLock}. A reload compares it before reading and before
+     * installing, to tell whether a change committed in between.
+     */
+    private long changes;
+
+    /**
+     * Identifier of this instance of the catalog, part of every version token
+     * so that versions counted before a restart never match the new ones.
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    /**
+     * Current snapshot of the catalog.
+     */
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.of(
+            Collections.<ProductSummary>emptyList(), Collections.<Tag>emptyList(),
+            Collections.<Supplier>emptyList(), 0);
+
+    /**
+     * Full-text index of the products.
+     */
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+
+    /**
+     * Tag, supplier and price index of the products.
+     */
+    private final ProductFacetIndex facetIndex = new ProductFacetIndex();
+
+    /**
+     * Type-ahead index of brands, models and supplier names.
+     */
+    private final SuggestionIndex suggestionIndex = new SuggestionIndex();
+
+    /**
+     * Loads the catalog when the application starts.
+     */
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void init() {
+        reload();
+    }
+
+    /**
+     * Retrieves every product, ordered by ID.
+     *
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    @Override
+    public List<ProductSummary> getProducts() {
+        return snapshot.getProducts();
+    }
+
+    /**
+     * Retrieves a product by its ID.
+     *
+     * @param productId The ID of the product.
+     * @return The {@link ProductSummary}, or null if there is no such product.
+     */
+    @Override
+    public ProductSummary getProduct(Integer productId) {
+        return snapshot.getProduct(productId);
+    }
+
+    /**
+     * Retrieves a page of products whose ID is greater than the given cursor,
+     * ordered by ID.
+     *
+     * @param afterId The ID of the last product of the previous page, or null
+     * to start from the first product.
+     * @param limit The maximum number of products to retrieve.
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    @Override
+    public List<ProductSummary> getProductsAfter(Integer afterId, int limit) {
+        return snapshot.getProductsAfter(afterId, limit);
+    }
+
+    /**
+     * Retrieves the products of a tag, ordered by ID.
+     *
+     * @param tagId The ID of the tag.
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    @Override
+    public List<ProductSummary> getProductsByTag(Integer tagId) {
+        return snapshot.getProductsByTag(tagId);
+    }
+
+    /**
+     * Retrieves the products of a supplier, ordered by ID.
+     *
+     * @param supplierId The ID of the supplier.
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    @Override
+    public List<ProductSummary> getProductsBySupplier(Integer supplierId) {
+        return snapshot.getProductsBySupplier(supplierId);
+    }
+
+    /**
+     * Searches the products matching any term of a query, ranked by BM25.
+     *
+     * @param query The text to search.
+     * @param limit The maximum number of products to retrieve.
+     * @return A List of {@link ProductSummary} objects, best match first.
+     */
+    @Override
+    public List<ProductSummary> searchProducts(String query, int limit) {
+        return toProducts(searchIndex.search(query, limit));
+    }
+
+    /**
+     * Searches the products matching any term of a query, tolerating typos.
+     *
+     * @param query The text to search.
+     * @param limit The maximum number of products to retrieve.
+     * @return A List of {@link ProductSummary} objects, best match first.
+     */
+    @Override
+    public List<ProductSummary> fuzzySearchProducts(String query, int limit) {
+        return toProducts(searchIndex.fuzzySearch(query, limit));
+    }
+
+    /**
+     * Gets the products of a list of IDs found by the search index.
+     *
+     * @param productIds The IDs of the products, in order.
+     * @return A List of {@link ProductSummary} objects, in the same order.
+     */
+    private List<ProductSummary> toProducts(int[] productIds) {
+        CatalogSnapshot current = snapshot;
+        List<ProductSummary> products = new ArrayList<>(productIds.length);
+        for (int productId : productIds) {
+            ProductSummary product = current.getProduct(productId);
+            // The index may be one change ahead of the snapshot read above.
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Completes a prefix with the most popular product brands, product
+     * models and supplier names.
+     *
+     * @param prefix The typed text.
+     * @param limit The maximum number of completions.
+     * @return The completions, most popular first.
+     */
+    @Override
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit);
+    }
+
+    /**
+     * Filters the products by tag, supplier and price, and counts the
+     * matching products per tag and per supplier.
+     *
+     * @param tagId The ID of the tag of the products, or null.
+     * @param supplierId The ID of the supplier of the products, or null.
+     * @param minPrice The lowest price, inclusive, or null.
+     * @param maxPrice The highest price, inclusive, or null.
+     * @param afterId The ID of the last product of the previous page, or null
+     * to start from the first product.
+     * @param limit The maximum number of products to retrieve.
+     * @return The {@link ProductFacets} with the matching products ordered by
+     * ID and the facet counts, largest first.
+     */
+    @Override
+    public ProductFacets getProductFacets(Integer tagId, Integer supplierId, Double minPrice, Double maxPrice,
+            Integer afterId, int limit) {
+        ProductFacetIndex.Result result = facetIndex.query(tagId, supplierId, minPrice, maxPrice);
+        CatalogSnapshot current = snapshot;
+        int[] productIds = result.getProductIds();
+        int from = 0;
+        if (afterId != null) {
+            int index = Arrays.binarySearch(productIds, afterId);
+            from = index < 0 ? -index - 1 : index + 1;
+        }
+        List<ProductSummary> products = new ArrayList<>();
+        for (int i = from; i < productIds.length && products.size() < limit; i++) {
+            ProductSummary product = current.getProduct(productIds[i]);
+            // The index may be one change ahead of the snapshot read above.
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        List<FacetCount> tags = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> count : result.getTagCounts().entrySet()) {
+            Tag tag = current.getTag(count.getKey());
+            tags.add(new FacetCount(count.getKey(), tag == null ? null : tag.getLabel(), count.getValue()));
+        }
+        List<FacetCount> suppliers = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> count : result.getSupplierCounts().entrySet()) {
+            Supplier supplier = current.getSupplier(count.getKey());
+            suppliers.add(new FacetCount(count.getKey(), supplier == null ? null : supplier.getName(), count.getValue()));
+        }
+        tags.sort((a, b) -> Integer.compare(b.getCount(), a.getCount()));
+        suppliers.sort((a, b) -> Integer.compare(b.getCount(), a.getCount()));
+        ProductFacets facets = new ProductFacets();
+        facets.setTotal(productIds.length);
+        facets.setProducts(products);
+        facets.setTags(tags);
+        facets.setSuppliers(suppliers);
+        return facets;
+    }
+
+    /**
+     * Gets an opaque token identifying the current state of the product
+     * list. It changes whenever any product changes.
+     *
+     * @return The version token.
+     */
+    @Override
+    public String getProductsVersion() {
+        return epoch + "-" + snapshot.getProductsVersion();
+    }
+
+    /**
+     * Gets an opaque token identifying the current state of the tag list.
+     *
+     * @return The version token.
+     */
+    @Override
+    public String getTagsVersion() {
+        return epoch + "-" + snapshot.getTagsVersion();
+    }
+
+    /**
+     * Gets an opaque token identifying the current state of the supplier
+     * list.
+     *
+     * @return The version token.
+     */
+    @Override
+    public String getSuppliersVersion() {
+        return epoch + "-" + snapshot.getSuppliersVersion();
+    }
+
+    /**
+     * Retrieves every tag, ordered by ID.
+     *
+     * @return An unmodifiable List of {@link Tag} objects.
+     */
+    @Override
+    public List<Tag> getTags() {
+        return snapshot.getTags();
+    }
+
+    /**
+     * Retrieves a tag by its ID.
+     *
+     * @param tagId The ID of the tag.
+     * @return The {@link Tag}, or null if there is no such tag.
+     */
+    @Override
+    public Tag getTag(Integer tagId) {
+        return snapshot.getTag(tagId);
+    }
+
+    /**
+     * Retrieves every supplier, ordered by ID.
+     *
+     * @return An unmodifiable List of {@link Supplier} objects.
+     */
+    @Override
+    public List<Supplier> getSuppliers() {
+        return snapshot.getSuppliers();
+    }
+
+    /**
+     * Retrieves a supplier by its ID.
+     *
+     * @param supplierId The ID of the supplier.
+     * @return The {@link Supplier}, or null if there is no such supplier.
+     */
+    @Override
+    public Supplier getSupplier(Integer supplierId) {
+        return snapshot.getSupplier(supplierId);
+    }
+
+    /**
+     * Reads the new state of a product and applies it once the current
+     * transaction commits.
+     *
+     * @param productId The ID of the product.
+     */
+    @Override
+    public void productSaved(Integer productId) {
+        List<ProductSummary> found = em.createNamedQuery("selectProductSummaryById", ProductSummary.class)
+                .setParameter("product_id", productId)
+                .getResultList();
+        if (found.isEmpty()) {
+            productRemoved(productId);
+            return;
+        }
+        final ProductSummary product = found.get(0);
+        afterCommit(current -> current.withProduct(product), (current, next) -> {
+            searchIndex.add(product);
+            ProductSummary old = current.getProduct(product.getProduct_id());
+            facetIndex.update(old, product);
+            suggestionIndex.update(old, product);
+        });
+    }
+
+    /**
+     * Removes a product once the current transaction commits.
+     *
+     * @param productId The ID of the product.
+     */
+    @Override
+    public void productRemoved(final Integer productId) {
+        afterCommit(current -> current.withoutProduct(productId), (current, next) -> {
+            searchIndex.remove(productId);
+            ProductSummary old = current.getProduct(productId);
+            if (old != null) {
+                facetIndex.remove(old);
+                suggestionIndex.remove(old);
+            }
+        });
+    }
+
+    /**
+     * Reads the new state of a tag and applies it once the current
+     * transaction commits, evicting the tag from the second-level cache at
+     * the same time.
+     *
+     * @param tagId The ID of the tag.
+     */
+    @Override
+    public void tagSaved(Integer tagId) {
+        evictAfterCommit(Tag.class, tagId);
+        Tag tag = em.find(Tag.class, tagId);
+        if (tag == null) {
+            tagRemoved(tagId);
+            return;
+        }
+        final Tag copy = CatalogSnapshot.copyOf(tag);
+        afterCommit(current -> current.withTag(copy), (current, next) -> { });
+    }
+
+    /**
+     * Removes a tag and its products once the current transaction commits,
+     * evicting the tag from the second-level cache at the same time.
+     *
+     * @param tagId The ID of the tag.
+     */
+    @Override
+    public void tagRemoved(final Integer tagId) {
+        evictAfterCommit(Tag.class, tagId);
+        afterCommit(current -> current.withoutTag(tagId), (current, next) -> {
+            for (ProductSummary product : current.getProductsByTag(tagId)) {
+                searchIndex.remove(product.getProduct_id());
+                facetIndex.remove(product);
+                suggestionIndex.remove(product);
+            }
+        });
+    }
+
+    /**
+     * Reads the new state of a supplier and applies it once the current
+     * transaction commits, evicting the supplier from the second-level cache
+     * at the same time.
+     *
+     * @param supplierId The ID of the supplier.
+     */
+    @Override
+    public void supplierSaved(Integer supplierId) {
+        evictAfterCommit(Supplier.class, supplierId);
+        Supplier supplier = em.find(Supplier.class, supplierId);
+        if (supplier == null) {
+            supplierRemoved(supplierId);
+            return;
+        }
+        final Supplier copy = CatalogSnapshot.copyOf(supplier);
+        afterCommit(current -> current.withSupplier(copy), (current, next) -> suggestionIndex.putSupplier(copy));
+    }
+
+    /**
+     * Removes a supplier and its products once the current transaction
+     * commits, evicting the supplier from the second-level cache at the same
+     * time.
+     *
+     * @param supplierId The ID of the supplier.
+     */
+    @Override
+    public void supplierRemoved(final Integer supplierId) {
+        evictAfterCommit(Supplier.class, supplierId);
+        afterCommit(current -> current.withoutSupplier(supplierId), (current, next) -> {
+            for (ProductSummary product : current.getProductsBySupplier(supplierId)) {
+                searchIndex.remove(product.getProduct_id());
+                facetIndex.remove(product);
+                suggestionIndex.remove(product);
+            }
+            suggestionIndex.removeSupplier(supplierId);
+        });
+    }
+
+    /**
+     * Reads the whole catalog outside any transaction and replaces the
+     * snapshot. If another change was applied while the catalog was read,
+     * what was read may be older than that change, so it is thrown away and
+     * read again; the last attempt reads while holding the write lock, so
+     * the concurrent changes wait for it instead.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void reload() {
+        LOGGER.info("CatalogManager: Loading catalog.");
+        for (int attempt = 1; attempt < RELOAD_ATTEMPTS; attempt++) {
+            long stamp;
+            synchronized (writeLock) {
+                stamp = changes;
+            }
+            UnaryOperator<CatalogSnapshot> load = readCatalog();
+            synchronized (writeLock) {
+                if (changes == stamp) {
+                    apply(load, (current, next) -> rebuildIndexes(next));
+                    return;
+                }
+            }
+            LOGGER.info("CatalogManager: Catalog changed while loading, loading again.");
+        }
+        synchronized (writeLock) {
+            apply(readCatalog(), (current, next) -> rebuildIndexes(next));
+        }
+    }
+
+    /**
+     * Reads the whole catalog.
+     *
+     * @return The change replacing a snapshot with the catalog read.
+     */
+    private UnaryOperator<CatalogSnapshot> readCatalog() {
+        final List<ProductSummary> products = em.createNamedQuery("selectAllProductSummaries", ProductSummary.class)
+                .getResultList();
+        final List<Tag> tags = em.createNamedQuery("selectAllTags", Tag.class).getResultList();
+        final List<Supplier> suppliers = em.createNamedQuery("selectAllSuppliers", Supplier.class).getResultList();
+        LOGGER.log(Level.INFO, "CatalogManager: Catalog loaded, {0} products.", products.size());
+        return current -> CatalogSnapshot.of(products, tags, suppliers, current.getVersion() + 1);
+    }
+
+    /**
+     * Applies a change to the snapshot once the current transaction commits,
+     * or right away when there is no transaction. Changes of rolled back
+     * transactions are dropped.
+     *
+     * @param change The change to apply.
+     * @param indexes The matching update of the side indexes, given the
+     * current and the new snapshot.
+     */
+    private void afterCommit(final UnaryOperator<CatalogSnapshot> change,
+            final BiConsumer<CatalogSnapshot, CatalogSnapshot> indexes) {
+        if (registry.getTransactionKey() == null) {
+            apply(change, indexes);
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    apply(change, indexes);
+                }
+            }
+        });
+    }
+
+    /**
+     * Evicts an entity from the second-level cache once the current
+     * transaction ends, or right away when there is no transaction. Evicting
+     * before the commit would let a concurrent read cache the old state
+     * again.
+     *
+     * @param type The class of the entity.
+     * @param id The ID of the entity.
+     */
+    private void evictAfterCommit(final Class<?> type, final Object id) {
+        final Cache cache = em.getEntityManagerFactory().getCache();
+        if (registry.getTransactionKey() == null) {
+            cache.evict(type, id);
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                cache.evict(type, id);
+            }
+        });
+    }
+
+    /**
+     * Replaces the snapshot with the result of a change, then updates the
+     * side indexes. A failed change leaves both untouched; if the index
+     * update fails, the indexes are rebuilt from the new snapshot so they
+     * never drift from it.
+     *
+     * @param change The change to apply.
+     * @param indexes The matching update of the side indexes.
+     */
+    private void apply(UnaryOperator<CatalogSnapshot> change,
+            BiConsumer<CatalogSnapshot, CatalogSnapshot> indexes) {
+        synchronized (writeLock) {
+            CatalogSnapshot current = snapshot;
+            CatalogSnapshot next;
+            try {
+                next = change.apply(current);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "CatalogManager: Exception applying catalog change.", e);
+                return;
+            }
+            snapshot = next;
+            changes++;
+            try {
+                indexes.accept(current, next);
+                suggestionIndex.publish();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "CatalogManager: Exception updating catalog indexes, rebuilding them.", e);
+                rebuildIndexes(next);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every side index from a snapshot.
+     *
+     * @param catalog The snapshot.
+     */
+    private void rebuildIndexes(CatalogSnapshot catalog) {
+        searchIndex.rebuild(catalog.getProducts());
+        facetIndex.rebuild(catalog.getProducts());
+        suggestionIndex.rebuild(catalog.getProducts(), catalog.getSuppliers());
+    }
+}
@@ -0,0 +1,823 @@
+package ejb;
+
+import entities.ProductSummary;
+import entities.Supplier;
+import entities.Tag;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Immutable in-memory copy of the catalog: every product summary with its tag
+ * and supplier, indexed by product ID, by tag and by supplier. Changes never
+ * modify a snapshot; they build a new one that shares everything the change
+ * does not touch, so readers can use a snapshot without any locking.
+ *
+ * Products are kept in arrays sorted by ID, which gives lookups by binary
+ * search and keyset pages as array ranges. The objects handed to readers are
+ * copies, so changing them never changes the snapshot.
+ *
+ * @author Alexander Epelde
+ */
+public final class CatalogSnapshot {
+
+    /**
+     * Shared empty product array.
+     */
+    private static final ProductSummary[] NO_PRODUCTS = new ProductSummary[0];
+
+    /**
+     * All products, sorted by ID.
+     */
+    private final ProductSummary[] products;
+
+    /**
+     * Products of each tag, sorted by ID.
+     */
+    private final Map<Integer, ProductSummary[]> productsByTag;
+
+    /**
+     * Products of each supplier, sorted by ID.
+     */
+    private final Map<Integer, ProductSummary[]> productsBySupplier;
+
+    /**
+     * Tags by ID, sorted by ID.
+     */
+    private final Map<Integer, Tag> tags;
+
+    /**
+     * Suppliers by ID, sorted by ID.
+     */
+    private final Map<Integer, Supplier> suppliers;
+
+    /**
+     * Version of the product list: the version of the last change that
+     * modified any product, including changes of their tag or supplier.
+     */
+    private final long productsVersion;
+
+    /**
+     * Version of the tag list: the version of the last change to a tag.
+     */
+    private final long tagsVersion;
+
+    /**
+     * Version of the supplier list: the version of the last change to a
+     * supplier.
+     */
+    private final long suppliersVersion;
+
+    private CatalogSnapshot(ProductSummary[] products, Map<Integer, ProductSummary[]> productsByTag,
+            Map<Integer, ProductSummary[]> productsBySupplier, Map<Integer, Tag> tags,
+            Map<Integer, Supplier> suppliers, long productsVersion, long tagsVersion, long suppliersVersion) {
+        this.products = products;
+        this.productsByTag = productsByTag;
+        this.productsBySupplier = productsBySupplier;
+        this.tags = tags;
+        this.suppliers = suppliers;
+        this.productsVersion = productsVersion;
+        this.tagsVersion = tagsVersion;
+        this.suppliersVersion = suppliersVersion;
+    }
+
+    /**
+     * Builds a snapshot from the full content of the catalog. The given
+     * objects are copied, so the caller may keep changing them.
+     *
+     * @param products The {@link ProductSummary} objects of every product.
+     * @param tags The {@link Tag} objects of every tag.
+     * @param suppliers The {@link Supplier} objects of every supplier.
+     * @param version The version of every list of the new snapshot.
+     * @return The new snapshot.
+     */
+    public static CatalogSnapshot of(List<ProductSummary> products, List<Tag> tags,
+            List<Supplier> suppliers, long version) {
+        Map<Integer, Tag> tagsById = new TreeMap<>();
+        for (Tag tag : tags) {
+            tagsById.put(tag.getTag_id(), copyOf(tag));
+        }
+        Map<Integer, Supplier> suppliersById = new TreeMap<>();
+        for (Supplier supplier : suppliers) {
+            suppliersById.put(supplier.getSupplier_id(), copyOf(supplier));
+        }
+        ProductSummary[] all = new ProductSummary[products.size()];
+        Map<Integer, List<ProductSummary>> byTag = new HashMap<>();
+        Map<Integer, List<ProductSummary>> bySupplier = new HashMap<>();
+        int i = 0;
+        for (ProductSummary product : products) {
+            // Link every product to the shared tag and supplier instances.
+            ProductSummary linked = relink(product,
+                    product.getTag() == null ? null : tagsById.get(product.getTag().getTag_id()),
+                    product.getSupplier() == null ? null : suppliersById.get(product.getSupplier().getSupplier_id()));
+            all[i++] = linked;
+            if (linked.getTag() != null) {
+                group(byTag, linked.getTag().getTag_id()).add(linked);
+            }
+            if (linked.getSupplier() != null) {
+                group(bySupplier, linked.getSupplier().getSupplier_id()).add(linked);
+            }
+        }
+        Arrays.sort(all, (a, b) -> Integer.compare(a.getProduct_id(), b.getProduct_id()));
+        return new CatalogSnapshot(all, toSortedArrays(byTag), toSortedArrays(bySupplier),
+                Collections.unmodifiableMap(tagsById), Collections.unmodifiableMap(suppliersById),
+                version, version, version);
+    }
+
+    /**
+     * Gets the version of the snapshot, which is the version of its most
+     * recently changed list. Versions only grow.
+     *
+     * @return The version of the snapshot.
+     */
+    public long getVersion() {
+        return Math.max(productsVersion, Math.max(tagsVersion, suppliersVersion));
+    }
+
+    /**
+     * Gets the version of the product list.
+     *
+     * @return The version of the product list.
+     */
+    public long getProductsVersion() {
+        return productsVersion;
+    }
+
+    /**
+     * Gets the version of the tag list.
+     *
+     * @return The version of the tag list.
+     */
+    public long getTagsVersion() {
+        return tagsVersion;
+    }
+
+    /**
+     * Gets the version of the supplier list.
+     *
+     * @return The version of the supplier list.
+     */
+    public long getSuppliersVersion() {
+        return suppliersVersion;
+    }
+
+    /**
+     * Gets a copy of every product, sorted by ID.
+     *
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    public List<ProductSummary> getProducts() {
+        return copiesOf(products, 0, products.length);
+    }
+
+    /**
+     * Gets a copy of a product by its ID.
+     *
+     * @param productId The ID of the product.
+     * @return The {@link ProductSummary} object, or null if there is no such
+     * product.
+     */
+    public ProductSummary getProduct(Integer productId) {
+        int index = indexOf(products, productId);
+        return index < 0 ? null : copiesOf(products, index, index + 1).get(0);
+    }
+
+    /**
+     * Gets a copy of a page of products whose ID is greater than the given
+     * cursor.
+     *
+     * @param afterId The ID of the last product of the previous page, or null
+     * to start from the first product.
+     * @param limit The maximum number of products to retrieve.
+     * @return An unmodifiable List of {@link ProductSummary} objects, sorted
+     * by ID.
+     */
+    public List<ProductSummary> getProductsAfter(Integer afterId, int limit) {
+        int from = 0;
+        if (afterId != null) {
+            int index = indexOf(products, afterId);
+            from = index < 0 ? -index - 1 : index + 1;
+        }
+        int to = (int) Math.min((long) from + limit, products.length);
+        return copiesOf(products, from, to);
+    }
+
+    /**
+     * Gets a copy of the products of a tag.
+     *
+     * @param tagId The ID of the tag.
+     * @return An unmodifiable List of {@link ProductSummary} objects, sorted
+     * by ID.
+     */
+    public List<ProductSummary> getProductsByTag(Integer tagId) {
+        ProductSummary[] group = productsByTag.get(tagId);
+        return group == null ? Collections.<ProductSummary>emptyList() : copiesOf(group, 0, group.length);
+    }
+
+    /**
+     * Gets a copy of the products of a supplier.
+     *
+     * @param supplierId The ID of the supplier.
+     * @return An unmodifiable List of {@link ProductSummary} objects, sorted
+     * by ID.
+     */
+    public List<ProductSummary> getProductsBySupplier(Integer supplierId) {
+        ProductSummary[] group = productsBySupplier.get(supplierId);
+        return group == null ? Collections.<ProductSummary>emptyList() : copiesOf(group, 0, group.length);
+    }
+
+    /**
+     * Gets a copy of every tag, sorted by ID.
+     *
+     * @return An unmodifiable List of {@link Tag} objects.
+     */
+    public List<Tag> getTags() {
+        List<Tag> copies = new ArrayList<>(tags.size());
+        for (Tag tag : tags.values()) {
+            copies.add(copyOf(tag));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * Gets a copy of a tag by its ID.
+     *
+     * @param tagId The ID of the tag.
+     * @return The {@link Tag} object, or null if there is no such tag.
+     */
+    public Tag getTag(Integer tagId) {
+        Tag tag = tags.get(tagId);
+        return tag == null ? null : copyOf(tag);
+    }
+
+    /**
+     * Gets a copy of every supplier, sorted by ID.
+     *
+     * @return An unmodifiable List of {@link Supplier} objects.
+     */
+    public List<Supplier> getSuppliers() {
+        List<Supplier> copies = new ArrayList<>(suppliers.size());
+        for (Supplier supplier : suppliers.values()) {
+            copies.add(copyOf(supplier));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * Gets a copy of a supplier by its ID.
+     *
+     * @param supplierId The ID of the supplier.
+     * @return The {@link Supplier} object, or null if there is no such
+     * supplier.
+     */
+    public Supplier getSupplier(Integer supplierId) {
+        Supplier supplier = suppliers.get(supplierId);
+        return supplier == null ? null : copyOf(supplier);
+    }
+
+    /**
+     * Returns a snapshot where a product is added or replaced.
+     *
+     * @param product The {@link ProductSummary} object with the new state of
+     * the product. It is copied.
+     * @return The new snapshot.
+     */
+    public CatalogSnapshot withProduct(ProductSummary product) {
+        ProductSummary linked = relink(product,
+                product.getTag() == null ? null : tagOrCopy(product.getTag()),
+                product.getSupplier() == null ? null : supplierOrCopy(product.getSupplier()));
+        int index = indexOf(products, linked.getProduct_id());
+        ProductSummary old = index < 0 ? null : products[index];
+        Map<Integer, ProductSummary[]> byTag = productsByTag;
+        Map<Integer, ProductSummary[]> bySupplier = productsBySupplier;
+        if (old != null && old.getTag() != null) {
+            byTag = without(byTag, old.getTag().getTag_id(), old.getProduct_id());
+        }
+        if (old != null && old.getSupplier() != null) {
+            bySupplier = without(bySupplier, old.getSupplier().getSupplier_id(), old.getProduct_id());
+        }
+        if (linked.getTag() != null) {
+            byTag = with(byTag, linked.getTag().getTag_id(), linked);
+        }
+        if (linked.getSupplier() != null) {
+            bySupplier = with(bySupplier, linked.getSupplier().getSupplier_id(), linked);
+        }
+        return new CatalogSnapshot(put(products, linked), byTag, bySupplier, tags, suppliers,
+                getVersion() + 1, tagsVersion, suppliersVersion);
+    }
+
+    /**
+     * Returns a snapshot without a product.
+     *
+     * @param productId The ID of the removed product.
+     * @return The new snapshot, or this one if there is no such product.
+     */
+    public CatalogSnapshot withoutProduct(Integer productId) {
+        int index = indexOf(products, productId);
+        if (index < 0) {
+            return this;
+        }
+        ProductSummary old = products[index];
+        Map<Integer, ProductSummary[]> byTag = productsByTag;
+        Map<Integer, ProductSummary[]> bySupplier = productsBySupplier;
+        if (old.getTag() != null) {
+            byTag = without(byTag, old.getTag().getTag_id(), productId);
+        }
+        if (old.getSupplier() != null) {
+            bySupplier = without(bySupplier, old.getSupplier().getSupplier_id(), productId);
+        }
+        return new CatalogSnapshot(remove(products, productId), byTag, bySupplier, tags, suppliers,
+                getVersion() + 1, tagsVersion, suppliersVersion);
+    }
+
+    /**
+     * Returns a snapshot where a tag is added or replaced. The products of
+     * the tag are relinked to its new state.
+     *
+     * @param tag The {@link Tag} object with the new state of the tag. It is
+     * copied.
+     * @return The new snapshot.
+     */
+    public CatalogSnapshot withTag(Tag tag) {
+        Tag copy = copyOf(tag);
+        Map<Integer, Tag> newTags = new TreeMap<>(tags);
+        newTags.put(copy.getTag_id(), copy);
+        ProductSummary[] group = productsByTag.get(copy.getTag_id());
+        if (group == null) {
+            return new CatalogSnapshot(products, productsByTag, productsBySupplier,
+                    Collections.unmodifiableMap(newTags), suppliers,
+                    productsVersion, getVersion() + 1, suppliersVersion);
+        }
+        ProductSummary[] newProducts = products.clone();
+        ProductSummary[] newGroup = new ProductSummary[group.length];
+        for (int i = 0; i < group.length; i++) {
+            newGroup[i] = relink(group[i], copy, group[i].getSupplier());
+            newProducts[indexOf(newProducts, group[i].getProduct_id())] = newGroup[i];
+        }
+        Map<Integer, ProductSummary[]> bySupplier = replaceAll(productsBySupplier,
+                groupBy(newGroup, CatalogSnapshot::supplierIdOf));
+        Map<Integer, ProductSummary[]> byTag = new HashMap<>(productsByTag);
+        byTag.put(copy.getTag_id(), newGroup);
+        long next = getVersion() + 1;
+        return new CatalogSnapshot(newProducts, byTag, bySupplier,
+                Collections.unmodifiableMap(newTags), suppliers, next, next, suppliersVersion);
+    }
+
+    /**
+     * Returns a snapshot without a tag and without the products of the tag.
+     *
+     * @param tagId The ID of the removed tag.
+     * @return The new snapshot.
+     */
+    public CatalogSnapshot withoutTag(Integer tagId) {
+        Map<Integer, Tag> newTags = new TreeMap<>(tags);
+        newTags.remove(tagId);
+        ProductSummary[] group = productsByTag.get(tagId);
+        ProductSummary[] newProducts = products;
+        Map<Integer, ProductSummary[]> bySupplier = productsBySupplier;
+        if (group != null) {
+            newProducts = removeAll(products, group);
+            bySupplier = removeAll(bySupplier, groupBy(group, CatalogSnapshot::supplierIdOf));
+        }
+        Map<Integer, ProductSummary[]> byTag = new HashMap<>(productsByTag);
+        byTag.remove(tagId);
+        long next = getVersion() + 1;
+        return new CatalogSnapshot(newProducts, byTag, bySupplier,
+                Collections.unmodifiableMap(newTags), suppliers,
+                group == null ? productsVersion : next, next, suppliersVersion);
+    }
+
+    /**
+     * Returns a snapshot where a supplier is added or replaced. The products
+     * of the supplier are relinked to its new state.
+     *
+     * @param supplier The {@link Supplier} object with the new state of the
+     * supplier. It is copied.
+     * @return The new snapshot.
+     */
+    public CatalogSnapshot withSupplier(Supplier supplier) {
+        Supplier copy = copyOf(supplier);
+        Map<Integer, Supplier> newSuppliers = new TreeMap<>(suppliers);
+        newSuppliers.put(copy.getSupplier_id(), copy);
+        ProductSummary[] group = productsBySupplier.get(copy.getSupplier_id());
+        if (group == null) {
+            return new CatalogSnapshot(products, productsByTag, productsBySupplier,
+                    tags, Collections.unmodifiableMap(newSuppliers),
+                    productsVersion, tagsVersion, getVersion() + 1);
+        }
+        ProductSummary[] newProducts = products.clone();
+        ProductSummary[] newGroup = new ProductSummary[group.length];
+        for (int i = 0; i < group.length; i++) {
+            newGroup[i] = relink(group[i], group[i].getTag(), copy);
+            newProducts[indexOf(newProducts, group[i].getProduct_id())] = newGroup[i];
+        }
+        Map<Integer, ProductSummary[]> byTag = replaceAll(productsByTag,
+                groupBy(newGroup, CatalogSnapshot::tagIdOf));
+        Map<Integer, ProductSummary[]> bySupplier = new HashMap<>(productsBySupplier);
+        bySupplier.put(copy.getSupplier_id(), newGroup);
+        long next = getVersion() + 1;
+        return new CatalogSnapshot(newProducts, byTag, bySupplier,
+                tags, Collections.unmodifiableMap(newSuppliers), next, tagsVersion, next);
+    }
+
+    /**
+     * Returns a snapshot without a supplier and without the products of the
+     * supplier.
+     *
+     * @param supplierId The ID of the removed supplier.
+     * @return The new snapshot.
+     */
+    public CatalogSnapshot withoutSupplier(Integer supplierId) {
+        Map<Integer, Supplier> newSuppliers = new TreeMap<>(suppliers);
+        newSuppliers.remove(supplierId);
+        ProductSummary[] group = productsBySupplier.get(supplierId);
+        ProductSummary[] newProducts = products;
+        Map<Integer, ProductSummary[]> byTag = productsByTag;
+        if (group != null) {
+            newProducts = removeAll(products, group);
+            byTag = removeAll(byTag, groupBy(group, CatalogSnapshot::tagIdOf));
+        }
+        Map<Integer, ProductSummary[]> bySupplier = new HashMap<>(productsBySupplier);
+        bySupplier.remove(supplierId);
+        long next = getVersion() + 1;
+        return new CatalogSnapshot(newProducts, byTag, bySupplier,
+                tags, Collections.unmodifiableMap(newSuppliers),
+                group == null ? productsVersion : next, tagsVersion, next);
+    }
+
+    /**
+     * Copies a tag without its products.
+     *
+     * @param tag The {@link Tag} object to copy.
+     * @return The copy of the tag.
+     */
+    public static Tag copyOf(Tag tag) {
+        Tag copy = new Tag();
+        copy.setTag_id(tag.getTag_id());
+        copy.setType(tag.getType());
+        copy.setLabel(tag.getLabel());
+        copy.setActive(tag.getActive());
+        copy.setCreateTimestamp(copyOf(tag.getCreateTimestamp()));
+        return copy;
+    }
+
+    /**
+     * Copies a supplier without its products.
+     *
+     * @param supplier The {@link Supplier} object to copy.
+     * @return The copy of the supplier.
+     */
+    public static Supplier copyOf(Supplier supplier) {
+        Supplier copy = new Supplier();
+        copy.setSupplier_id(supplier.getSupplier_id());
+        copy.setName(supplier.getName());
+        copy.setPhone(supplier.getPhone());
+        copy.setCountry(supplier.getCountry());
+        copy.setZip(supplier.getZip());
+        copy.setCreateTimestamp(copyOf(supplier.getCreateTimestamp()));
+        return copy;
+    }
+
+    /**
+     * Copies a timestamp.
+     *
+     * @param date The timestamp, or null.
+     * @return The copy of the timestamp, or null.
+     */
+    private static Date copyOf(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    /**
+     * Copies a range of products for a reader. Products sharing a tag or a
+     * supplier share its copy too.
+     *
+     * @param array The products, sorted by ID.
+     * @param from The index of the first product, inclusive.
+     * @param to The index of the last product, exclusive.
+     * @return An unmodifiable List of copies of the {@link ProductSummary}
+     * objects.
+     */
+    private static List<ProductSummary> copiesOf(ProductSummary[] array, int from, int to) {
+        Map<Integer, Tag> tagCopies = new HashMap<>();
+        Map<Integer, Supplier> supplierCopies = new HashMap<>();
+        List<ProductSummary> copies = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ProductSummary product = array[i];
+            Tag tag = product.getTag() == null ? null
+                    : tagCopies.computeIfAbsent(product.getTag().getTag_id(), id -> copyOf(product.getTag()));
+            Supplier supplier = product.getSupplier() == null ? null
+                    : supplierCopies.computeIfAbsent(product.getSupplier().getSupplier_id(),
+                            id -> copyOf(product.getSupplier()));
+            copies.add(relink(product, tag, supplier));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    /**
+     * Gets the shared instance of a tag, or a copy of the given one if the
+     * snapshot does not know it.
+     *
+     * @param tag The {@link Tag} object of a product.
+     * @return The tag to link the product to.
+     */
+    private Tag tagOrCopy(Tag tag) {
+        Tag shared = tags.get(tag.getTag_id());
+        return shared != null ? shared : copyOf(tag);
+    }
+
+    /**
+     * Gets the shared instance of a supplier, or a copy of the given one if
+     * the snapshot does not know it.
+     *
+     * @param supplier The {@link Supplier} object of a product.
+     * @return The supplier to link the product to.
+     */
+    private Supplier supplierOrCopy(Supplier supplier) {
+        Supplier shared = suppliers.get(supplier.getSupplier_id());
+        return shared != null ? shared : copyOf(supplier);
+    }
+
+    /**
+     * Copies a product summary, pointing it to the given tag and supplier.
+     *
+     * @param product The {@link ProductSummary} object to copy.
+     * @param tag The tag of the copy, or null.
+     * @param supplier The supplier of the copy, or null.
+     * @return The copy of the product.
+     */
+    private static ProductSummary relink(ProductSummary product, Tag tag, Supplier supplier) {
+        ProductSummary copy = new ProductSummary();
+        copy.setProduct_id(product.getProduct_id());
+        copy.setProductNumber(product.getProductNumber());
+        copy.setBrand(product.getBrand());
+        copy.setModel(product.getModel());
+        copy.setOtherInfo(product.getOtherInfo());
+        copy.setWeight(product.getWeight());
+        copy.setDescription(product.getDescription());
+        copy.setPrice(product.getPrice());
+        copy.setCreateTimestamp(copyOf(product.getCreateTimestamp()));
+        copy.setTag(tag);
+        copy.setSupplier(supplier);
+        return copy;
+    }
+
+    /**
+     * Binary search of a product ID in an array sorted by ID.
+     *
+     * @param array The products, sorted by ID.
+     * @param productId The ID of the product.
+     * @return The index of the product, or (-(insertion point) - 1).
+     */
+    private static int indexOf(ProductSummary[] array, int productId) {
+        int low = 0;
+        int high = array.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = array[mid].getProduct_id();
+            if (id < productId) {
+                low = mid + 1;
+            } else if (id > productId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Copies a sorted array adding or replacing a product.
+     *
+     * @param array The products, sorted by ID.
+     * @param product The product to add or replace.
+     * @return The new array, sorted by ID.
+     */
+    private static ProductSummary[] put(ProductSummary[] array, ProductSummary product) {
+        int index = indexOf(array, product.getProduct_id());
+        if (index >= 0) {
+            ProductSummary[] copy = array.clone();
+            copy[index] = product;
+            return copy;
+        }
+        int at = -index - 1;
+        ProductSummary[] copy = new ProductSummary[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, at);
+        copy[at] = product;
+        System.arraycopy(array, at, copy, at + 1, array.length - at);
+        return copy;
+    }
+
+    /**
+     * Copies a sorted array removing a product.
+     *
+     * @param array The products, sorted by ID.
+     * @param productId The ID of the product to remove.
+     * @return The new array, or the same one if the product is not in it.
+     */
+    private static ProductSummary[] remove(ProductSummary[] array, int productId) {
+        int index = indexOf(array, productId);
+        if (index < 0) {
+            return array;
+        }
+        ProductSummary[] copy = new ProductSummary[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, index);
+        System.arraycopy(array, index + 1, copy, index, array.length - index - 1);
+        return copy;
+    }
+
+    /**
+     * Copies a sorted array removing every product of another sorted array.
+     *
+     * @param array The products, sorted by ID.
+     * @param removed The products to remove, sorted by ID.
+     * @return The new array, sorted by ID.
+     */
+    private static ProductSummary[] removeAll(ProductSummary[] array, ProductSummary[] removed) {
+        ProductSummary[] copy = new ProductSummary[array.length];
+        int size = 0;
+        int r = 0;
+        for (ProductSummary product : array) {
+            while (r < removed.length && removed[r].getProduct_id() < product.getProduct_id()) {
+                r++;
+            }
+            if (r < removed.length && removed[r].getProduct_id().equals(product.getProduct_id())) {
+                continue;
+            }
+            copy[size++] = product;
+        }
+        return Arrays.copyOf(copy, size);
+    }
+
+    /**
+     * Copies an index adding or replacing a product in one of its groups.
+     *
+     * @param index The products by group key.
+     * @param key The key of the group.
+     * @param product The product to add or replace.
+     * @return The new index.
+     */
+    private static Map<Integer, ProductSummary[]> with(Map<Integer, ProductSummary[]> index,
+            Integer key, ProductSummary product) {
+        ProductSummary[] group = index.get(key);
+        Map<Integer, ProductSummary[]> copy = new HashMap<>(index);
+        copy.put(key, put(group == null ? NO_PRODUCTS : group, product));
+        return copy;
+    }
+
+    /**
+     * Copies an index removing a product from one of its groups.
+     *
+     * @param index The products by group key.
+     * @param key The key of the group.
+     * @param productId The ID of the product to remove.
+     * @return The new index, or the same one if there is no such group.
+     */
+    private static Map<Integer, ProductSummary[]> without(Map<Integer, ProductSummary[]> index,
+            Integer key, int productId) {
+        ProductSummary[] group = index.get(key);
+        if (group == null) {
+            return index;
+        }
+        Map<Integer, ProductSummary[]> copy = new HashMap<>(index);
+        ProductSummary[] newGroup = remove(group, productId);
+        if (newGroup.length == 0) {
+            copy.remove(key);
+        } else {
+            copy.put(key, newGroup);
+        }
+        return copy;
+    }
+
+    /**
+     * Copies an index replacing products in several of its groups, copying
+     * the map and each affected group once.
+     *
+     * @param index The products by group key.
+     * @param replaced The new states of products already in the index, by
+     * group key.
+     * @return The new index.
+     */
+    private static Map<Integer, ProductSummary[]> replaceAll(Map<Integer, ProductSummary[]> index,
+            Map<Integer, List<ProductSummary>> replaced) {
+        if (replaced.isEmpty()) {
+            return index;
+        }
+        Map<Integer, ProductSummary[]> copy = new HashMap<>(index);
+        for (Map.Entry<Integer, List<ProductSummary>> entry : replaced.entrySet()) {
+            ProductSummary[] group = copy.get(entry.getKey()).clone();
+            for (ProductSummary product : entry.getValue()) {
+                group[indexOf(group, product.getProduct_id())] = product;
+            }
+            copy.put(entry.getKey(), group);
+        }
+        return copy;
+    }
+
+    /**
+     * Copies an index removing products from several of its groups, copying
+     * the map and each affected group once.
+     *
+     * @param index The products by group key.
+     * @param removed The removed products, sorted by ID, by group key.
+     * @return The new index.
+     */
+    private static Map<Integer, ProductSummary[]> removeAll(Map<Integer, ProductSummary[]> index,
+            Map<Integer, List<ProductSummary>> removed) {
+        if (removed.isEmpty()) {
+            return index;
+        }
+        Map<Integer, ProductSummary[]> copy = new HashMap<>(index);
+        for (Map.Entry<Integer, List<ProductSummary>> entry : removed.entrySet()) {
+            ProductSummary[] group = copy.get(entry.getKey());
+            if (group == null) {
+                continue;
+            }
+            ProductSummary[] newGroup = removeAll(group, entry.getValue().toArray(NO_PRODUCTS));
+            if (newGroup.length == 0) {
+                copy.remove(entry.getKey());
+            } else {
+                copy.put(entry.getKey(), newGroup);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Splits products by a group key, keeping their order. Products without
+     * a key are left out.
+     *
+     * @param products The products.
+     * @param key The function giving the key of a product, or null.
+     * @return The products by key.
+     */
+    private static Map<Integer, List<ProductSummary>> groupBy(ProductSummary[] products,
+            Function<ProductSummary, Integer> key) {
+        Map<Integer, List<ProductSummary>> groups = new HashMap<>();
+        for (ProductSummary product : products) {
+            Integer value = key.apply(product);
+            if (value != null) {
+                group(groups, value).add(product);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Gets the tag ID of a product.
+     *
+     * @param product The product.
+     * @return The ID of its tag, or null if it has no tag.
+     */
+    private static Integer tagIdOf(ProductSummary product) {
+        return product.getTag() == null ? null : product.getTag().getTag_id();
+    }
+
+    /**
+     * Gets the supplier ID of a product.
+     *
+     * @param product The product.
+     * @return The ID of its supplier, or null if it has no supplier.
+     */
+    private static Integer supplierIdOf(ProductSummary product) {
+        return product.getSupplier() == null ? null : product.getSupplier().getSupplier_id();
+    }
+
+    /**
+     * Gets or creates the list of a group while building a snapshot.
+     *
+     * @param groups The groups built so far, by key.
+     * @param key The key of the group.
+     * @return The list of the group.
+     */
+    private static List<ProductSummary> group(Map<Integer, List<ProductSummary>> groups, Integer key) {
+        List<ProductSummary> group = groups.get(key);
+        if (group == null) {
+            group = new ArrayList<>();
+            groups.put(key, group);
+        }
+        return group;
+    }
+
+    /**
+     * Turns the groups built while loading into arrays sorted by ID.
+     *
+     * @param groups The groups, by key.
+     * @return The groups as arrays sorted by ID, by key.
+     */
+    private static Map<Integer, ProductSummary[]> toSortedArrays(Map<Integer, List<ProductSummary>> groups) {
+        Map<Integer, ProductSummary[]> result = new HashMap<>();
+        for (Map.Entry<Integer, List<ProductSummary>> entry : groups.entrySet()) {
+            ProductSummary[] group = entry.getValue().toArray(NO_PRODUCTS);
+            Arrays.sort(group, (a, b) -> Integer.compare(a.getProduct_id(), b.getProduct_id()));
+            result.put(entry.getKey(), group);
+        }
+        return result;
+    }
+}
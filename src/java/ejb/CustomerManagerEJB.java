@@ -4,12 +4,15 @@ import ejb.local.CustomerManagerEJBLocal;
 import encryption.EncriptionManager;
 import encryption.EncriptionManagerFactory;
 import entities.Customer;
+import entities.CustomerSummary;
 import exceptions.CreateException;
 import exceptions.DeleteException;
 import exceptions.ReadException;
 import exceptions.UpdateException;
 import java.util.Base64;
 
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -33,20 +36,32 @@ public class CustomerManagerEJB implements CustomerManagerEJBLocal {
     @PersistenceContext
     private EntityManager em;
 
+    // Session context, used to roll back multi-statement operations.
+    @Resource
+    private SessionContext context;
+
     private EncriptionManager encriptionManager = EncriptionManagerFactory.getInstance();
 
     /**
      * Updates the personal information of a customer identified by their user
      * ID.
      *
-     * @param customer The Customer object containing updated information.
+     * @param customer The Customer object containing updated information. A
+     * null password, as in a {@link CustomerSummary} sent back, keeps the
+     * current one.
      * @throws UpdateException If an error occurs during the update process.
      */
     @Override
     public void updateCustomer(Customer customer) throws UpdateException {
         try {
             LOGGER.info("CustomerManager: Updating customer.");
-            customer.setPassword(Base64.getEncoder().encodeToString(encriptionManager.decryptMessage(customer.getPassword())));
+            if (customer.getPassword() == null) {
+                customer.setPassword((String) em.createNamedQuery("findPasswordById")
+                        .setParameter(1, customer.getId())
+                        .getSingleResult());
+            } else {
+                customer.setPassword(Base64.getEncoder().encodeToString(encriptionManager.decryptMessage(customer.getPassword())));
+            }
             em.merge(customer);
             LOGGER.info("CustomerManager: Customer updated.");
         } catch (Exception e) {
@@ -56,7 +71,10 @@ public class CustomerManagerEJB implements CustomerManagerEJBLocal {
     }
 
     /**
-     * Deletes a user (customer) identified by their ID.
+     * Deletes a user (customer) identified by their ID, together with their
+     * purchases. Their pending ledger lines are flagged as aggregated in the
+     * same transaction, so the ledger timer cannot recreate a purchase total
+     * that would block the delete.
      *
      * @param id The ID of the user to be deleted.
      * @throws DeleteException If an error occurs during the delete process.
@@ -65,12 +83,16 @@ public class CustomerManagerEJB implements CustomerManagerEJBLocal {
     public void deleteCustomerById(Integer id) throws DeleteException {
         try {
             LOGGER.info("CustomerManager: Deleting customer.");
+            em.createNamedQuery("settleLinesByCustomerId").setParameter("customer_id", id).executeUpdate();
+            em.createNamedQuery("deleteByCustomerId").setParameter("customer_id", id).executeUpdate();
             // Create and execute a named query to delete a user by ID.
             em.createNamedQuery("deleteCustomerById").setParameter("customerId", id).executeUpdate();
 
             LOGGER.info("CustomerManager: Customer deleted.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "CustomerManager: Exception deleting customer.", e);
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
             throw new DeleteException(e.getMessage());
         }
     }
@@ -96,21 +118,24 @@ public class CustomerManagerEJB implements CustomerManagerEJBLocal {
     }
 
     /**
-     * Retrieves customer information for a user identified by their user ID.
+     * Retrieves the public view of a customer. Only the columns it shows are
+     * selected, so no password is read nor encrypted and no purchase is
+     * loaded.
      *
      * @param userId The ID of the user for whom customer information is
      * requested.
-     * @return The Customer object containing customer information.
+     * @return The {@link CustomerSummary} object.
      * @throws ReadException If an error occurs during the read process.
      */
     @Override
-    public Customer getCustomer(Integer userId) throws ReadException {
+    public CustomerSummary getCustomerSummary(Integer userId) throws ReadException {
         try {
-            LOGGER.info("CustomerManager: Getting customer, ID " + userId);
-            // Execute a named query to get a customer by user ID.
-            return encryptPassword((Customer) em.createNamedQuery("getCustomer").setParameter("userId", userId).getSingleResult());
+            LOGGER.info("CustomerManager: Getting customer summary, ID " + userId);
+            return em.createNamedQuery("getCustomerSummary", CustomerSummary.class)
+                    .setParameter("userId", userId)
+                    .getSingleResult();
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "CustomerManager: Exception getting Customer. ", e);
+            LOGGER.log(Level.SEVERE, "CustomerManager: Exception getting Customer summary. ", e);
             throw new ReadException("Error getting customer");
         }
     }
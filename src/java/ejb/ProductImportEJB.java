@@ -0,0 +1,315 @@
+package ejb;
+
+import ejb.local.CatalogManagerEJBLocal;
+import ejb.local.ProductImportEJBLocal;
+import entities.ImportRowError;
+import entities.Product;
+import entities.ProductImportReport;
+import entities.Supplier;
+import entities.Tag;
+import exceptions.CreateException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Stateless EJB importing products in bulk. The import loop runs outside any
+ * transaction, parsing one row at a time; valid rows are gathered in chunks
+ * and every chunk is inserted by a call through the business proxy of this
+ * bean, so each one commits on its own. Inside a chunk the persistence
+ * context is flushed and cleared every JDBC batch, so inserts are sent in
+ * batches and the context stays small.
+ *
+ * @author Alexander Epelde
+ */
+@Stateless
+public class ProductImportEJB implements ProductImportEJBLocal {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("our_shop");
+
+    /**
+     * Maximum number of rows inserted by a single transaction.
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Number of rows flushed at once, matching hibernate.jdbc.batch_size.
+     */
+    private static final int BATCH_SIZE = 30;
+
+    /**
+     * Maximum number of row errors kept in a report.
+     */
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * Entity manager object for interacting with the database.
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Session context, used to call the chunk operations through the
+     * container so their transaction attribute applies.
+     */
+    @Resource
+    private SessionContext context;
+
+    /**
+     * Catalog kept in memory, used to check suppliers and tags and reloaded
+     * when an import ends.
+     */
+    @EJB
+    private CatalogManagerEJBLocal catalog;
+
+    /**
+     * Reads products from NDJSON or CSV input and inserts the valid ones in
+     * chunks.
+     *
+     * @param input The input, read line by line.
+     * @param csv True for CSV input with a header line, false for NDJSON.
+     * @return The {@link ProductImportReport} of the import.
+     * @throws CreateException If the input cannot be read.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public ProductImportReport importProducts(Reader input, boolean csv) throws CreateException {
+        LOGGER.log(Level.INFO, "ProductImport: Starting {0} import.", csv ? "CSV" : "NDJSON");
+        ProductImportEJBLocal self = context.getBusinessObject(ProductImportEJBLocal.class);
+        ProductRowReader reader = new ProductRowReader(new BufferedReader(input), csv);
+        ProductImportReport report = new ProductImportReport();
+        List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> lines = new ArrayList<>(CHUNK_SIZE);
+        try {
+            while (true) {
+                Map<String, String> row;
+                try {
+                    row = reader.next();
+                } catch (IllegalArgumentException e) {
+                    report.setRowsRead(report.getRowsRead() + 1);
+                    reject(report, reader.getLine(), e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                report.setRowsRead(report.getRowsRead() + 1);
+                try {
+                    chunk.add(toProduct(row));
+                    lines.add(reader.getLine());
+                } catch (IllegalArgumentException e) {
+                    reject(report, reader.getLine(), e.getMessage());
+                    continue;
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    insert(self, chunk, lines, report);
+                }
+            }
+            insert(self, chunk, lines, report);
+            LOGGER.log(Level.INFO, "ProductImport: Finished import, {0} rows imported, {1} rejected.",
+                    new Object[]{report.getRowsImported(), report.getRowsRejected()});
+            return report;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "ProductImport: Exception reading import.", e);
+            throw new CreateException(e.getMessage());
+        } finally {
+            if (report.getRowsImported() > 0) {
+                catalog.reload();
+            }
+        }
+    }
+
+    /**
+     * Inserts a chunk of products in a transaction of its own, flushing and
+     * clearing the persistence context every JDBC batch.
+     *
+     * @param products The products to insert.
+     * @throws CreateException If any product cannot be inserted; none of the
+     * chunk is then inserted.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void insertChunk(List<Product> products) throws CreateException {
+        try {
+            Date now = new Date();
+            int pending = 0;
+            for (Product product : products) {
+                product.setProduct_id(null);
+                if (product.getSupplier() != null) {
+                    product.setSupplier(em.getReference(Supplier.class, product.getSupplier().getSupplier_id()));
+                }
+                if (product.getTag() != null) {
+                    product.setTag(em.getReference(Tag.class, product.getTag().getTag_id()));
+                }
+                if (product.getCreateTimestamp() == null) {
+                    product.setCreateTimestamp(now);
+                }
+                em.persist(product);
+                if (++pending == BATCH_SIZE) {
+                    em.flush();
+                    em.clear();
+                    pending = 0;
+                }
+            }
+            em.flush();
+            em.clear();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "ProductImport: Exception inserting chunk of products, {0}", e.getMessage());
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
+            throw new CreateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts the pending chunk and empties it. When the chunk fails as a
+     * whole, its rows are retried one by one so the failing ones can be
+     * reported.
+     *
+     * @param self The business proxy of this bean.
+     * @param chunk The products of the chunk.
+     * @param lines The input line of each product.
+     * @param report The report to update.
+     */
+    private void insert(ProductImportEJBLocal self, List<Product> chunk, List<Integer> lines,
+            ProductImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            self.insertChunk(chunk);
+            report.setRowsImported(report.getRowsImported() + chunk.size());
+        } catch (CreateException chunkFailure) {
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    self.insertChunk(Collections.singletonList(chunk.get(i)));
+                    report.setRowsImported(report.getRowsImported() + 1);
+                } catch (CreateException e) {
+                    reject(report, lines.get(i), e.getMessage());
+                }
+            }
+        }
+        chunk.clear();
+        lines.clear();
+    }
+
+    /**
+     * Validates a row and builds its product. The supplier and tag are
+     * checked against the catalog and only carry their IDs.
+     *
+     * @param row The values of the row by column name.
+     * @return The product.
+     * @throws IllegalArgumentException If the row is not valid.
+     */
+    private Product toProduct(Map<String, String> row) {
+        String productNumber = row.get("productNumber");
+        if (productNumber == null || productNumber.trim().isEmpty()) {
+            throw new IllegalArgumentException("productNumber is required");
+        }
+        Product product = new Product();
+        product.setProductNumber(productNumber);
+        product.setBrand(row.get("brand"));
+        product.setModel(row.get("model"));
+        product.setOtherInfo(row.get("otherInfo"));
+        product.setDescription(row.get("description"));
+        String weight = row.get("weight");
+        if (weight != null) {
+            product.setWeight(parse(weight, "weight").floatValue());
+        }
+        String price = row.get("price");
+        if (price != null) {
+            product.setPrice(parse(price, "price"));
+        }
+        String supplierId = row.get("supplierId");
+        if (supplierId != null) {
+            Integer id = parseId(supplierId, "supplierId");
+            if (catalog.getSupplier(id) == null) {
+                throw new IllegalArgumentException("supplier " + id + " does not exist");
+            }
+            Supplier supplier = new Supplier();
+            supplier.setSupplier_id(id);
+            product.setSupplier(supplier);
+        }
+        String tagId = row.get("tagId");
+        if (tagId != null) {
+            Integer id = parseId(tagId, "tagId");
+            if (catalog.getTag(id) == null) {
+                throw new IllegalArgumentException("tag " + id + " does not exist");
+            }
+            Tag tag = new Tag();
+            tag.setTag_id(id);
+            product.setTag(tag);
+        }
+        return product;
+    }
+
+    /**
+     * Parses a non-negative number.
+     *
+     * @param value The text of the number.
+     * @param column The column name, for the error message.
+     * @return The number.
+     * @throws IllegalArgumentException If the value is not a non-negative
+     * number.
+     */
+    private static Double parse(String value, String column) {
+        double number;
+        try {
+            number = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number");
+        }
+        if (number < 0 || Double.isNaN(number) || Double.isInfinite(number)) {
+            throw new IllegalArgumentException(column + " must not be negative");
+        }
+        return number;
+    }
+
+    /**
+     * Parses an ID.
+     *
+     * @param value The text of the ID.
+     * @param column The column name, for the error message.
+     * @return The ID.
+     * @throws IllegalArgumentException If the value is not an integer.
+     */
+    private static Integer parseId(String value, String column) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not an integer");
+        }
+    }
+
+    /**
+     * Records a rejected row.
+     *
+     * @param report The report to update.
+     * @param line The line of the row.
+     * @param message The reason the row was rejected.
+     */
+    private static void reject(ProductImportReport report, int line, String message) {
+        report.setRowsRejected(report.getRowsRejected() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add(new ImportRowError(line, message));
+        }
+    }
+}
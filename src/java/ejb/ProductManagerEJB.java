@@ -1,5 +1,6 @@
 package ejb;
 
+import ejb.local.CatalogManagerEJBLocal;
 import ejb.local.ProductManagerEJBLocal;
 import entities.Product;
 import exceptions.CreateException;
@@ -7,6 +8,9 @@ import exceptions.DeleteException;
 import exceptions.ReadException;
 import exceptions.UpdateException;
 
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -35,6 +39,18 @@ public class ProductManagerEJB implements ProductManagerEJBLocal {
     @PersistenceContext
     private EntityManager em;
 
+    /**
+     * Session context, used to roll back multi-statement operations.
+     */
+    @Resource
+    private SessionContext context;
+
+    /**
+     * Catalog kept in memory, notified of every write.
+     */
+    @EJB
+    private CatalogManagerEJBLocal catalog;
+
     /**
      * Updates the information of a product in the data store.
      *
@@ -47,6 +63,7 @@ public class ProductManagerEJB implements ProductManagerEJBLocal {
         LOGGER.info("ProductManager: Updating product.");
         try {
             em.merge(product);
+            catalog.productSaved(product.getProduct_id());
             LOGGER.info("ProductManager: Product updated.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "ProductManager: Exception updating product.{0}", e.getMessage());
@@ -55,7 +72,10 @@ public class ProductManagerEJB implements ProductManagerEJBLocal {
     }
 
     /**
-     * Deletes a product from the data store based on the product ID.
+     * Deletes a product from the data store based on the product ID, together
+     * with its purchases. Its pending ledger lines are flagged as aggregated
+     * in the same transaction, so the ledger timer cannot recreate a purchase
+     * total that would block the delete.
      *
      * @param productId The ID of the product to be deleted.
      * @throws DeleteException Thrown when an error occurs during product
@@ -65,10 +85,15 @@ public class ProductManagerEJB implements ProductManagerEJBLocal {
     public void deleteProduct(Integer productId) throws DeleteException {
         LOGGER.info("ProductManager: Deleting product.");
         try {
+            em.createNamedQuery("settleLinesByProductId").setParameter("product_id", productId).executeUpdate();
+            em.createNamedQuery("deleteByProductId").setParameter("product_id", productId).executeUpdate();
             em.createNamedQuery("deleteProduct").setParameter("productId", productId).executeUpdate();
+            catalog.productRemoved(productId);
             LOGGER.info("ProductManager: Product deleted.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "ProductManager: Exception deleting product.{0}", e.getMessage());
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
             throw new DeleteException(e.getMessage());
         }
     }
@@ -124,90 +149,11 @@ public class ProductManagerEJB implements ProductManagerEJBLocal {
         LOGGER.info("ProductManager: Inserting product.");
         try {
             em.persist(product);
+            catalog.productSaved(product.getProduct_id());
             LOGGER.info("ProductManager: Product inserted.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "ProductManager: Exception inserting product.{0}", e.getMessage());
             throw new CreateException(e.getMessage());
         }
     }
-
-    /**
-     * Retrieves a list of product IDs associated with a given tag ID.
-     *
-     * @param tagId The ID of the tag to filter products.
-     * @return A List of Integer representing product IDs.
-     * @throws ReadException Thrown when an error occurs during product ID
-     * retrieval.
-     */
-    @Override
-    public List<Integer> selectProductWithTagId(Integer tagId) throws ReadException {
-        LOGGER.info("ProductManager: Selecting product IDs with tag ID.");
-        try {
-            return em.createNamedQuery("selectProductWithTagId")
-                    .setParameter("tag_id", tagId)
-                    .getResultList();
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "ProductManager: Exception selecting product IDs with tag ID.{0}", e.getMessage());
-            throw new ReadException(e.getMessage());
-        }
-    }
-
-    /**
-     * Retrieves a list of product IDs associated with a given supplier ID.
-     *
-     * @param supplierId The ID of the supplier to filter products.
-     * @return A List of Integer representing product IDs.
-     * @throws ReadException Thrown when an error occurs during product ID
-     * retrieval.
-     */
-    @Override
-    public List<Integer> selectProductWithSupplierId(Integer supplierId) throws ReadException {
-        LOGGER.info("ProductManager: Selecting product IDs with supplier ID.");
-        try {
-            return em.createNamedQuery("selectProductWithSupplierId")
-                    .setParameter("supplier_id", supplierId)
-                    .getResultList();
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "ProductManager: Exception selecting product IDs with supplier ID.{0}", e.getMessage());
-            throw new ReadException(e.getMessage());
-        }
-    }
-
-    /**
-     * Deletes products associated with a given tag ID from the data store.
-     *
-     * @param tagId The ID of the tag to filter products for deletion.
-     * @throws DeleteException Thrown when an error occurs during product
-     * deletion by tag ID.
-     */
-    @Override
-    public void deleteProductByTagId(Integer tagId) throws DeleteException {
-        LOGGER.info("ProductManager: Deleting products by tag ID.");
-        try {
-            em.createNamedQuery("deleteProductByTagId").setParameter("tag_id", tagId).executeUpdate();
-            LOGGER.info("ProductManager: Products deleted by tag ID.");
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "ProductManager: Exception deleting products by tag ID.{0}", e.getMessage());
-            throw new DeleteException(e.getMessage());
-        }
-    }
-
-    /**
-     * Deletes products associated with a given supplier ID from the data store.
-     *
-     * @param supplierId The ID of the supplier to filter products for deletion.
-     * @throws DeleteException Thrown when an error occurs during product
-     * deletion by supplier ID.
-     */
-    @Override
-    public void deleteProductBySupplierId(Integer supplierId) throws DeleteException {
-        LOGGER.info("ProductManager: Deleting products by supplier ID.");
-        try {
-            em.createNamedQuery("deleteProductBySupplierId").setParameter("supplier_id", supplierId).executeUpdate();
-            LOGGER.info("ProductManager: Products deleted by supplier ID.");
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "ProductManager: Exception deleting products by supplier ID.{0}", e.getMessage());
-            throw new DeleteException(e.getMessage());
-        }
-    }
 }
@@ -0,0 +1,186 @@
+package ejb;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the rows of a product import one at a time, so the input is never
+ * held in memory as a whole. NDJSON input has one JSON object per line; CSV
+ * input has a header line naming the columns, and fields may be quoted with
+ * double quotes, doubling the quotes inside them; a quoted field may span
+ * several lines. Blank lines are skipped.
+ *
+ * @author Alexander Epelde
+ */
+final class ProductRowReader {
+
+    /**
+     * Parser of the NDJSON lines.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Source of the lines.
+     */
+    private final BufferedReader reader;
+
+    /**
+     * True for CSV input, false for NDJSON.
+     */
+    private final boolean csv;
+
+    /**
+     * Column names of the CSV input.
+     */
+    private List<String> header;
+
+    /**
+     * Number of the last line read, starting at 1.
+     */
+    private int line;
+
+    /**
+     * Number of the first line of the last row read, starting at 1.
+     */
+    private int rowLine;
+
+    /**
+     * Creates a reader.
+     *
+     * @param reader The source of the lines.
+     * @param csv True for CSV input, false for NDJSON.
+     */
+    ProductRowReader(BufferedReader reader, boolean csv) {
+        this.reader = reader;
+        this.csv = csv;
+    }
+
+    /**
+     * Gets the number of the first line of the last row read.
+     *
+     * @return The line number, starting at 1.
+     */
+    int getLine() {
+        return rowLine;
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return The values of the row by column name, or null at the end of
+     * the input.
+     * @throws IOException If the input cannot be read.
+     * @throws IllegalArgumentException If the row is malformed; the reader
+     * can go on with the next row.
+     */
+    Map<String, String> next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.trim().isEmpty());
+        rowLine = line;
+        if (!csv) {
+            return parseJson(text);
+        }
+        List<String> fields = parseCsv(text);
+        while (fields == null) {
+            String more = reader.readLine();
+            if (more == null) {
+                throw new IllegalArgumentException("unterminated quoted field");
+            }
+            line++;
+            text = text + "\n" + more;
+            fields = parseCsv(text);
+        }
+        if (header == null) {
+            header = fields;
+            return next();
+        }
+        if (fields.size() != header.size()) {
+            throw new IllegalArgumentException("expected " + header.size() + " fields, found " + fields.size());
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            row.put(header.get(i).trim(), fields.get(i));
+        }
+        return row;
+    }
+
+    /**
+     * Parses a JSON object with scalar values.
+     */
+    private static Map<String, String> parseJson(String text) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("malformed JSON: " + (e instanceof JsonProcessingException
+                    ? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage()));
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        Map<String, String> row = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isContainerNode()) {
+                throw new IllegalArgumentException(field.getKey() + " must be a plain value");
+            }
+            row.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText());
+        }
+        return row;
+    }
+
+    /**
+     * Splits a CSV record into its fields. An empty unquoted field is null.
+     *
+     * @return The fields, or null if the record ends inside a quoted field
+     * and goes on in the next line.
+     */
+    private static List<String> parseCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+        return fields;
+    }
+}
@@ -3,17 +3,35 @@ package ejb;
 import ejb.local.ProductsBoughtManagerEJBLocal;
 import entities.Customer;
 import entities.ProductsBought;
+import entities.PurchaseHistoryEntry;
+import entities.PurchaseOrder;
+import entities.PurchaseRecord;
 import exceptions.DeleteException;
 import exceptions.ReadException;
 import exceptions.UpdateException;
 
+import javax.annotation.Resource;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 
 /**
  * EJB class for managing products bought by customers. This class implements
@@ -31,12 +49,24 @@ public class ProductsBoughtManagerEJB implements ProductsBoughtManagerEJBLocal {
      */
     private static final Logger LOGGER = Logger.getLogger("our_shop");
 
+    /**
+     * Fetch size that makes the MySQL driver stream a result set row by row
+     * instead of reading it whole into memory.
+     */
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
     /**
      * Entity manager object for handling persistence operations.
      */
     @PersistenceContext
     private EntityManager em;
 
+    /**
+     * Session context, used to roll back a failed checkout.
+     */
+    @Resource
+    private SessionContext context;
+
     /**
      * Purchases a product for a customer by updating the product amount and
      * associated customer's balance.
@@ -60,7 +90,133 @@ public class ProductsBoughtManagerEJB implements ProductsBoughtManagerEJBLocal {
     }
 
     /**
-     * Updates the amount of a purchased product for a customer.
+     * Adds an amount to a purchase by appending a one-line order to the
+     * purchase ledger. No existing row is read or updated; the purchase total
+     * is brought up to date by {@link PurchaseLedgerEJB}.
+     *
+     * @param productBought The purchase, whose amount is the quantity to add.
+     * @throws UpdateException If an error occurs during the update process.
+     */
+    @Override
+    public void addPurchase(ProductsBought productBought) throws UpdateException {
+        LOGGER.info("ProductsBoughtManager: Adding to purchase.");
+        try {
+            recordOrder(productBought.getId().getCustomerId(), Collections.singletonList(productBought));
+            LOGGER.info("ProductsBoughtManager: Purchase added.");
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "ProductsBoughtManager: Exception adding to purchase.{0}", e.getMessage());
+            throw new UpdateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a whole basket in the container transaction of this call. The
+     * cost of the basket is computed by the database from the current
+     * product prices and debited with one conditional statement, which only
+     * matches while the balance covers it, so concurrent checkouts of the
+     * same customer can neither overwrite each other nor overdraw the
+     * balance. The basket is then appended to the purchase ledger as one
+     * order, whose lines are inserted in JDBC batches; the purchase totals
+     * catch up once {@link PurchaseLedgerEJB} folds them in.
+     *
+     * @param customer The customer, carrying the basket in its set of
+     * products bought; the amount of each line is the quantity bought now.
+     * Its balance is ignored.
+     * @throws UpdateException If the balance does not cover the basket, a
+     * product does not exist or has no price, or an error occurs during the
+     * update process; the transaction is then rolled back.
+     */
+    @Override
+    public void checkout(Customer customer) throws UpdateException {
+        LOGGER.info("ProductsBoughtManager: Checking out basket.");
+        try {
+            Set<ProductsBought> basket = customer.getProductsBought();
+            if (basket == null || basket.isEmpty()) {
+                LOGGER.info("ProductsBoughtManager: Empty basket, nothing to check out.");
+                return;
+            }
+            List<ProductsBought> lines = new ArrayList<>(basket);
+            for (ProductsBought pb : lines) {
+                if (pb.getAmount() == null || pb.getAmount() <= 0) {
+                    throw new IllegalArgumentException("Amount of product " + pb.getId().getProductId()
+                            + " must be a positive number");
+                }
+            }
+            if (debit(customer.getId(), lines) == 0) {
+                throw new IllegalStateException("Balance does not cover the basket, or a product has no price");
+            }
+            recordOrder(customer.getId(), lines);
+            LOGGER.info("ProductsBoughtManager: Basket checked out.");
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "ProductsBoughtManager: Exception checking out basket.{0}", e.getMessage());
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
+            throw new UpdateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Debits the cost of some purchase lines from the balance of a customer
+     * in a single statement, if the balance covers it. The cost is the sum
+     * of the price of every product times its amount, computed by the
+     * database; a missing product or price makes the debit fail.
+     *
+     * @param customerId The ID of the customer.
+     * @param lines The purchase lines, with the quantities bought.
+     * @return The number of customers debited: 1, or 0 if the debit was not
+     * made.
+     */
+    private int debit(Integer customerId, List<ProductsBought> lines) {
+        StringBuilder sql = new StringBuilder("UPDATE our_shop.customer c JOIN ("
+                + "SELECT SUM(p.price * CASE p.product_id");
+        int position = 1;
+        for (int i = 0; i < lines.size(); i++) {
+            sql.append(" WHEN ?").append(position++).append(" THEN ?").append(position++);
+        }
+        sql.append(" END) AS cost, COUNT(p.price) AS priced FROM our_shop.product p WHERE p.product_id IN (");
+        for (int i = 0; i < lines.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?").append(2 * i + 1);
+        }
+        sql.append(")) basket SET c.balance = c.balance - basket.cost WHERE c.id = ?").append(position)
+                .append(" AND basket.priced = ?").append(position + 1)
+                .append(" AND c.balance >= basket.cost");
+        Query debit = em.createNativeQuery(sql.toString());
+        // Only the customer table changes, so the rest of the second-level
+        // cache survives the statement.
+        debit.unwrap(SQLQuery.class).addSynchronizedEntityClass(Customer.class);
+        position = 1;
+        for (ProductsBought pb : lines) {
+            debit.setParameter(position++, pb.getId().getProductId());
+            debit.setParameter(position++, pb.getAmount());
+        }
+        return debit.setParameter(position, customerId)
+                .setParameter(position + 1, lines.size())
+                .executeUpdate();
+    }
+
+    /**
+     * Appends an order with some purchase lines to the purchase ledger. The
+     * IDs come from pooled table generators, so the lines are inserted in
+     * JDBC batches.
+     *
+     * @param customerId The ID of the customer.
+     * @param lines The purchase lines, with the quantities bought.
+     */
+    private void recordOrder(Integer customerId, List<ProductsBought> lines) {
+        PurchaseOrder order = new PurchaseOrder();
+        order.setCustomerId(customerId);
+        order.setCreateTimestamp(new Date());
+        for (ProductsBought pb : lines) {
+            order.addLine(pb.getId().getProductId(), pb.getAmount());
+        }
+        em.persist(order);
+        em.flush();
+    }
+
+    /**
+     * Updates the amount of a purchased product for a customer. It overwrites
+     * the purchase total directly, as a correction outside the purchase
+     * ledger, so a rebuild of the totals from the ledger discards it.
      *
      * @param customerId The ID of the customer.
      * @param product_id The ID of the product.
@@ -103,6 +259,117 @@ public class ProductsBoughtManagerEJB implements ProductsBoughtManagerEJBLocal {
         }
     }
 
+    /**
+     * Retrieves one page of the purchase history of a customer, newest
+     * first. Pages are delimited by the purchase time and product ID of the
+     * last entry of the previous one, so each page is a range scan of the
+     * products_bought_history index (src/sql/purchase_history_index.sql)
+     * however deep it is. Purchases without a purchase time are left out.
+     *
+     * @param customerId The ID of the customer.
+     * @param beforeTimestamp The purchase time of the last entry of the
+     * previous page, or null for the first page.
+     * @param beforeProductId The product ID of the last entry of the
+     * previous page, or null for the first page.
+     * @param limit The maximum number of entries.
+     * @return The entries, newest first.
+     * @throws ReadException If an error occurs during the read process.
+     */
+    @Override
+    public List<PurchaseHistoryEntry> getPurchaseHistory(Integer customerId, Date beforeTimestamp,
+            Integer beforeProductId, int limit) throws ReadException {
+        LOGGER.info("ProductsBoughtManager: Retrieving purchase history of customer.");
+        try {
+            if (beforeTimestamp == null) {
+                return em.createNamedQuery("selectPurchaseHistory", PurchaseHistoryEntry.class)
+                        .setParameter("customerId", customerId)
+                        .setMaxResults(limit)
+                        .getResultList();
+            }
+            return em.createNamedQuery("selectPurchaseHistoryBefore", PurchaseHistoryEntry.class)
+                    .setParameter("customerId", customerId)
+                    .setParameter("boughtTimestamp", beforeTimestamp, TemporalType.TIMESTAMP)
+                    .setParameter("productId", beforeProductId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "ProductsBoughtManager: Exception retrieving purchase history.{0}", e.getMessage());
+            throw new ReadException(e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the purchases made within a time range through a forward-only
+     * cursor. Only the needed columns are read, joined in SQL, so neither
+     * the eager associations of {@link ProductsBought} nor the persistence
+     * context are involved. It runs outside any transaction so that long
+     * exports are not cut by the transaction timeout.
+     *
+     * @param from The earliest purchase time, inclusive, or null.
+     * @param to The latest purchase time, exclusive, or null.
+     * @param consumer The consumer receiving the purchases.
+     * @throws ReadException If an error occurs during the read process.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void exportPurchases(Date from, Date to, Consumer<PurchaseRecord> consumer) throws ReadException {
+        LOGGER.log(Level.INFO, "ProductsBoughtManager: Exporting purchases from {0} to {1}.", new Object[]{from, to});
+        StringBuilder sql = new StringBuilder("SELECT pb.customerId, c.fullName, c.email, "
+                + "pb.productId, p.productNumber, p.brand, p.model, p.price, pb.amount, pb.boughtTimestamp "
+                + "FROM our_shop.products_bought pb "
+                + "JOIN our_shop.customer c ON c.id = pb.customerId "
+                + "JOIN our_shop.product p ON p.product_id = pb.productId WHERE 1 = 1");
+        if (from != null) {
+            sql.append(" AND pb.boughtTimestamp >= :from");
+        }
+        if (to != null) {
+            sql.append(" AND pb.boughtTimestamp < :to");
+        }
+        ScrollableResults results = null;
+        try {
+            SQLQuery query = em.unwrap(Session.class).createSQLQuery(sql.toString());
+            if (from != null) {
+                query.setParameter("from", new Timestamp(from.getTime()));
+            }
+            if (to != null) {
+                query.setParameter("to", new Timestamp(to.getTime()));
+            }
+            results = query.setFetchSize(STREAMING_FETCH_SIZE)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            while (results.next()) {
+                consumer.accept(new PurchaseRecord(
+                        toInteger(results.get(0)),
+                        (String) results.get(1),
+                        (String) results.get(2),
+                        toInteger(results.get(3)),
+                        (String) results.get(4),
+                        (String) results.get(5),
+                        (String) results.get(6),
+                        results.get(7) == null ? null : ((Number) results.get(7)).doubleValue(),
+                        toInteger(results.get(8)),
+                        (Date) results.get(9)));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "ProductsBoughtManager: Exception exporting purchases.{0}", e.getMessage());
+            throw new ReadException(e.getMessage());
+        } finally {
+            if (results != null) {
+                results.close();
+            }
+        }
+    }
+
+    /**
+     * Converts a numeric column value to an Integer.
+     *
+     * @param value The value read from the column.
+     * @return The Integer value, or null.
+     */
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
     /**
      * Deletes products bought by a customer based on the specified customer ID.
      *
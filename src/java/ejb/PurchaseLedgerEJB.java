@@ -0,0 +1,197 @@
+package ejb;
+
+import ejb.local.PurchaseLedgerEJBLocal;
+import entities.OrderLine;
+import entities.ProductsBought;
+import exceptions.UpdateException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.Schedule;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.hibernate.SQLQuery;
+
+/**
+ * Stateless EJB keeping the {@link entities.ProductsBought} totals up to date
+ * with the purchase ledger. Checkouts only append {@link entities.OrderLine}
+ * rows; a timer folds the new lines into the totals every few seconds, so
+ * the totals lag slightly behind the ledger. As in {@link PurgeWorkerEJB},
+ * the loop runs outside any transaction and every chunk commits on its own
+ * through the business proxy of this bean.
+ *
+ * @author Alexander Epelde
+ */
+@Stateless
+public class PurchaseLedgerEJB implements PurchaseLedgerEJBLocal {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("our_shop");
+
+    /**
+     * Maximum number of ledger lines aggregated by a single transaction.
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Entity manager object for interacting with the database.
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Session context, used to call the chunk operations through the
+     * container so their transaction attribute applies.
+     */
+    @Resource
+    private SessionContext context;
+
+    /**
+     * Folds the ledger lines appended since the last run into the purchase
+     * totals.
+     */
+    @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void aggregate() {
+        try {
+            int lines = aggregateAll();
+            if (lines > 0) {
+                LOGGER.log(Level.FINE, "PurchaseLedger: {0} ledger lines aggregated.", lines);
+            }
+        } catch (UpdateException e) {
+            LOGGER.log(Level.SEVERE, "PurchaseLedger: Exception aggregating ledger lines.", e);
+        }
+    }
+
+    /**
+     * Recomputes every purchase total from the ledger. While it runs, the
+     * totals only hold the lines folded so far.
+     */
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void rebuild() {
+        LOGGER.info("PurchaseLedger: Rebuilding purchase totals.");
+        try {
+            context.getBusinessObject(PurchaseLedgerEJBLocal.class).resetTotals();
+            int lines = aggregateAll();
+            LOGGER.log(Level.INFO, "PurchaseLedger: Purchase totals rebuilt from {0} ledger lines.", lines);
+        } catch (UpdateException e) {
+            LOGGER.log(Level.SEVERE, "PurchaseLedger: Exception rebuilding purchase totals.", e);
+        }
+    }
+
+    /**
+     * Adds at most a given number of unaggregated ledger lines to the
+     * purchase totals, in a transaction of its own. The lines are locked
+     * while they are read, so concurrent runs never fold the same line
+     * twice. Lines of customers or products deleted since are skipped. On
+     * failure nothing of the chunk is kept, so its lines are folded again by
+     * the next run and never counted twice.
+     *
+     * @param chunkSize The maximum number of lines to aggregate.
+     * @return The number of lines aggregated.
+     * @throws UpdateException If there is any exception during processing.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int aggregateChunk(int chunkSize) throws UpdateException {
+        try {
+            List<?> lineIds = em.createNativeQuery("SELECT line_id FROM our_shop.order_line "
+                    + "WHERE aggregated = 0 ORDER BY line_id LIMIT ?1 FOR UPDATE")
+                    .setParameter(1, chunkSize)
+                    .getResultList();
+            if (lineIds.isEmpty()) {
+                return 0;
+            }
+            ledgerStatement("INSERT INTO our_shop.products_bought "
+                    + "(customerId, productId, amount, boughtTimestamp) "
+                    + "SELECT * FROM (SELECT o.customerId, l.productId, SUM(l.amount) AS amount, "
+                    + "MAX(o.createTimestamp) AS boughtTimestamp "
+                    + "FROM our_shop.order_line l "
+                    + "JOIN our_shop.purchase_order o ON o.order_id = l.order_id "
+                    + "JOIN our_shop.customer c ON c.id = o.customerId "
+                    + "JOIN our_shop.product p ON p.product_id = l.productId "
+                    + "WHERE l.line_id IN (:lineIds) GROUP BY o.customerId, l.productId) folded "
+                    + "ON DUPLICATE KEY UPDATE amount = products_bought.amount + VALUES(amount), "
+                    + "boughtTimestamp = COALESCE(GREATEST(products_bought.boughtTimestamp, "
+                    + "VALUES(boughtTimestamp)), VALUES(boughtTimestamp))")
+                    .setParameter("lineIds", lineIds)
+                    .executeUpdate();
+            ledgerStatement("UPDATE our_shop.order_line SET aggregated = 1 WHERE line_id IN (:lineIds)")
+                    .setParameter("lineIds", lineIds)
+                    .executeUpdate();
+            return lineIds.size();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "PurchaseLedger: Exception aggregating chunk of ledger lines.", e);
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
+            throw new UpdateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes every purchase total and flags every ledger line as
+     * unaggregated, in a transaction of its own. On failure neither change
+     * is kept.
+     *
+     * @throws UpdateException If there is any exception during processing.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void resetTotals() throws UpdateException {
+        try {
+            ledgerStatement("DELETE FROM our_shop.products_bought").executeUpdate();
+            ledgerStatement("UPDATE our_shop.order_line SET aggregated = 0 WHERE aggregated = 1")
+                    .executeUpdate();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "PurchaseLedger: Exception resetting purchase totals.", e);
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
+            throw new UpdateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a native statement writing the totals or the ledger. It
+     * declares the tables it touches, so Hibernate only invalidates their
+     * cached queries instead of the whole second-level cache.
+     *
+     * @param sql The SQL statement.
+     * @return The query.
+     */
+    private Query ledgerStatement(String sql) {
+        Query query = em.createNativeQuery(sql);
+        query.unwrap(SQLQuery.class)
+                .addSynchronizedEntityClass(ProductsBought.class)
+                .addSynchronizedEntityClass(OrderLine.class);
+        return query;
+    }
+
+    /**
+     * Aggregates chunks until no unaggregated line is left.
+     *
+     * @return The number of lines aggregated.
+     * @throws UpdateException If a chunk fails; the chunks before it stay
+     * committed.
+     */
+    private int aggregateAll() throws UpdateException {
+        PurchaseLedgerEJBLocal self = context.getBusinessObject(PurchaseLedgerEJBLocal.class);
+        int total = 0;
+        int lines;
+        do {
+            lines = self.aggregateChunk(CHUNK_SIZE);
+            total += lines;
+        } while (lines == CHUNK_SIZE);
+        return total;
+    }
+}
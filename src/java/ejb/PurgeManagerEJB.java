@@ -0,0 +1,102 @@
+package ejb;
+
+import ejb.local.PurgeManagerEJBLocal;
+import ejb.local.PurgeWorkerEJBLocal;
+import entities.PurgeJob;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+
+/**
+ * Singleton EJB keeping track of background purges. It registers each job
+ * and hands it to the {@link PurgeWorkerEJBLocal} worker; finished jobs are
+ * kept for a while so their final status can still be read.
+ *
+ * @author Alexander Epelde
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PurgeManagerEJB implements PurgeManagerEJBLocal {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("our_shop");
+
+    /**
+     * Time a finished job is kept before being forgotten.
+     */
+    private static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Jobs by ID.
+     */
+    private final Map<String, PurgeJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Worker running the purges.
+     */
+    @EJB
+    private PurgeWorkerEJBLocal worker;
+
+    /**
+     * Registers a purge job and starts it in the background.
+     *
+     * @param ownerType The kind of owner to purge.
+     * @param ownerId The ID of the owner to purge.
+     * @return The {@link PurgeJob} tracking the purge.
+     */
+    @Override
+    public PurgeJob startPurge(PurgeJob.OwnerType ownerType, Integer ownerId) {
+        forgetFinishedJobs();
+        PurgeJob job = new PurgeJob(ownerType, ownerId);
+        jobs.put(job.getId(), job);
+        LOGGER.info("PurgeManager: Starting " + job + ".");
+        worker.purge(job);
+        return job;
+    }
+
+    /**
+     * Retrieves a purge job by its ID.
+     *
+     * @param jobId The ID of the job.
+     * @return The {@link PurgeJob}, or null if there is no such job.
+     */
+    @Override
+    public PurgeJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Retrieves every purge job that is running or finished recently.
+     *
+     * @return A List of {@link PurgeJob} objects.
+     */
+    @Override
+    public List<PurgeJob> getJobs() {
+        forgetFinishedJobs();
+        return new ArrayList<>(jobs.values());
+    }
+
+    /**
+     * Removes the jobs that finished longer ago than the retention time.
+     */
+    private void forgetFinishedJobs() {
+        long limit = System.currentTimeMillis() - RETENTION_MILLIS;
+        for (Iterator<PurgeJob> it = jobs.values().iterator(); it.hasNext();) {
+            Date end = it.next().getEndTimestamp();
+            if (end != null && end.getTime() < limit) {
+                it.remove();
+            }
+        }
+    }
+}
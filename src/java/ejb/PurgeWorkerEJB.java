@@ -0,0 +1,252 @@
+package ejb;
+
+import ejb.local.CatalogManagerEJBLocal;
+import ejb.local.PurgeWorkerEJBLocal;
+import entities.Product;
+import entities.ProductsBought;
+import entities.PurgeJob;
+import exceptions.DeleteException;
+import exceptions.ReadException;
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.EJB;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import org.hibernate.SQLQuery;
+
+/**
+ * Stateless EJB running background purges of tags and suppliers. The purge
+ * loop itself runs outside any transaction; every chunk is deleted by a call
+ * through the business proxy of this bean, so each one commits on its own and
+ * keeps the undo log and the row locks small.
+ *
+ * @author Alexander Epelde
+ */
+@Stateless
+public class PurgeWorkerEJB implements PurgeWorkerEJBLocal {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("our_shop");
+
+    /**
+     * Maximum number of rows deleted by a single transaction.
+     */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Pause between chunks, leaving room to foreground transactions waiting
+     * on the same tables.
+     */
+    private static final long PAUSE_MILLIS = 50;
+
+    /**
+     * Entity manager object for interacting with the database.
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Session context, used to call the chunk operations through the
+     * container so their transaction attribute applies.
+     */
+    @Resource
+    private SessionContext context;
+
+    /**
+     * Catalog kept in memory, notified when a purge ends.
+     */
+    @EJB
+    private CatalogManagerEJBLocal catalog;
+
+    /**
+     * Runs a purge job: purchases first, then products, then the owner.
+     *
+     * @param job The {@link PurgeJob} to run.
+     */
+    @Override
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void purge(PurgeJob job) {
+        LOGGER.log(Level.INFO, "PurgeWorker: Starting {0}.", job);
+        PurgeWorkerEJBLocal self = context.getBusinessObject(PurgeWorkerEJBLocal.class);
+        try {
+            job.setTotalRows(self.countRows(job.getOwnerType(), job.getOwnerId()));
+            job.setStartTimestamp(new Date());
+            job.setState(PurgeJob.State.RUNNING);
+            int deleted;
+            do {
+                deleted = self.deletePurchasesChunk(job.getOwnerType(), job.getOwnerId(), CHUNK_SIZE);
+                job.addRowsDeleted(deleted);
+                pause(deleted);
+            } while (deleted == CHUNK_SIZE);
+            do {
+                deleted = self.deleteProductsChunk(job.getOwnerType(), job.getOwnerId(), CHUNK_SIZE);
+                job.addRowsDeleted(deleted);
+                pause(deleted);
+            } while (deleted == CHUNK_SIZE);
+            self.deleteOwner(job.getOwnerType(), job.getOwnerId());
+            job.setState(PurgeJob.State.COMPLETED);
+            LOGGER.log(Level.INFO, "PurgeWorker: Finished {0}, {1} rows deleted.",
+                    new Object[]{job, job.getRowsDeleted()});
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "PurgeWorker: Exception running purge.", e);
+            job.setError(e.getMessage());
+            job.setState(PurgeJob.State.FAILED);
+            // Some chunks may have been committed already.
+            catalog.reload();
+        } finally {
+            job.setEndTimestamp(new Date());
+        }
+    }
+
+    /**
+     * Counts the purchases and products owned by an owner.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @return The number of rows a purge of the owner would delete.
+     * @throws ReadException If there is any exception during processing.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public long countRows(PurgeJob.OwnerType ownerType, Integer ownerId) throws ReadException {
+        try {
+            String column = ownerType.getProductColumn();
+            Number rows = (Number) em.createNativeQuery("SELECT "
+                    + "(SELECT COUNT(*) FROM our_shop.products_bought pb "
+                    + "JOIN our_shop.product p ON p.product_id = pb.productId WHERE p." + column + " = ?1) "
+                    + "+ (SELECT COUNT(*) FROM our_shop.product WHERE " + column + " = ?1)")
+                    .setParameter(1, ownerId)
+                    .getSingleResult();
+            return rows.longValue();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "PurgeWorker: Exception counting rows to purge.", e);
+            throw new ReadException(e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes at most a given number of purchases of the owner's products, in
+     * a transaction of its own.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @param chunkSize The maximum number of rows to delete.
+     * @return The number of rows deleted.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int deletePurchasesChunk(PurgeJob.OwnerType ownerType, Integer ownerId, int chunkSize) throws DeleteException {
+        try {
+            return deleteStatement("DELETE FROM our_shop.products_bought WHERE productId IN "
+                    + "(SELECT product_id FROM our_shop.product WHERE " + ownerType.getProductColumn() + " = ?1) "
+                    + "LIMIT ?2", ProductsBought.class)
+                    .setParameter(1, ownerId)
+                    .setParameter(2, chunkSize)
+                    .executeUpdate();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "PurgeWorker: Exception deleting chunk of purchases.", e);
+            throw new DeleteException(e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes at most a given number of the owner's products, in a
+     * transaction of its own. The pending ledger lines of the owner's
+     * products are flagged as aggregated and the purchases the ledger timer
+     * folded since the purchase chunks are deleted in the same transaction,
+     * so no purchase is left to block the delete.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @param chunkSize The maximum number of rows to delete.
+     * @return The number of rows deleted.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int deleteProductsChunk(PurgeJob.OwnerType ownerType, Integer ownerId, int chunkSize) throws DeleteException {
+        try {
+            boolean tag = ownerType == PurgeJob.OwnerType.TAG;
+            em.createNamedQuery(tag ? "settleLinesByTagId" : "settleLinesBySupplierId")
+                    .setParameter(tag ? "tag_id" : "supplier_id", ownerId)
+                    .executeUpdate();
+            em.createNamedQuery(tag ? "deleteByTagId" : "deleteBySupplierId")
+                    .setParameter(tag ? "tag_id" : "supplier_id", ownerId)
+                    .executeUpdate();
+            return deleteStatement("DELETE FROM our_shop.product WHERE "
+                    + ownerType.getProductColumn() + " = ?1 LIMIT ?2", Product.class)
+                    .setParameter(1, ownerId)
+                    .setParameter(2, chunkSize)
+                    .executeUpdate();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "PurgeWorker: Exception deleting chunk of products.", e);
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
+            throw new DeleteException(e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the owner itself, in a transaction of its own.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    @Override
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void deleteOwner(PurgeJob.OwnerType ownerType, Integer ownerId) throws DeleteException {
+        try {
+            if (ownerType == PurgeJob.OwnerType.TAG) {
+                em.createNamedQuery("deleteTag").setParameter("tagId", ownerId).executeUpdate();
+                catalog.tagRemoved(ownerId);
+            } else {
+                em.createNamedQuery("deleteSupplier").setParameter("supplierId", ownerId).executeUpdate();
+                catalog.supplierRemoved(ownerId);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "PurgeWorker: Exception deleting purged owner.", e);
+            throw new DeleteException(e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a native delete declaring the entity whose table it changes,
+     * so Hibernate only invalidates that part of the second-level cache
+     * instead of all of it.
+     *
+     * @param sql The SQL statement.
+     * @param entityClass The entity mapped to the table the statement changes.
+     * @return The query.
+     */
+    private Query deleteStatement(String sql, Class<?> entityClass) {
+        Query query = em.createNativeQuery(sql);
+        query.unwrap(SQLQuery.class).addSynchronizedEntityClass(entityClass);
+        return query;
+    }
+
+    /**
+     * Waits a little after a chunk that deleted rows, so the purge does not
+     * monopolize the tables it is working on.
+     *
+     * @param deleted The number of rows the last chunk deleted.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    private void pause(int deleted) throws InterruptedException {
+        if (deleted > 0) {
+            Thread.sleep(PAUSE_MILLIS);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ejb;
 
+import ejb.local.CatalogManagerEJBLocal;
 import ejb.local.SupplierManagerEJBLocal;
 import entities.Supplier;
 import exceptions.CreateException;
@@ -9,6 +10,9 @@ import exceptions.UpdateException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -33,6 +37,18 @@ public class SupplierManagerEJB implements SupplierManagerEJBLocal {
     @PersistenceContext
     private EntityManager em;
 
+    /**
+     * Session context, used to roll back multi-statement operations.
+     */
+    @Resource
+    private SessionContext context;
+
+    /**
+     * Catalog kept in memory, notified of every write.
+     */
+    @EJB
+    private CatalogManagerEJBLocal catalog;
+
     /**
      * Updates a Supplier entity.
      *
@@ -45,6 +61,7 @@ public class SupplierManagerEJB implements SupplierManagerEJBLocal {
         LOGGER.info("SupplierManager: Updating supplier.");
         try {
             em.merge(supplier);
+            catalog.supplierSaved(supplier.getSupplier_id());
             LOGGER.info("SupplierManager: Supplier updated.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "SupplierManager: Exception updating supplier.{0}", e.getMessage());
@@ -67,6 +84,7 @@ public class SupplierManagerEJB implements SupplierManagerEJBLocal {
             em.createNamedQuery("deleteSupplier")
                     .setParameter("supplierId", supplierId)
                     .executeUpdate();
+            catalog.supplierRemoved(supplierId);
             LOGGER.info("SupplierManager: Supplier deleted.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "SupplierManager: Exception deleting supplier.", e);
@@ -128,10 +146,49 @@ public class SupplierManagerEJB implements SupplierManagerEJBLocal {
         LOGGER.info("SupplierManager: Inserting supplier.");
         try {
             em.persist(supplier);
+            catalog.supplierSaved(supplier.getSupplier_id());
             LOGGER.info("SupplierManager: Supplier inserted.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "SupplierManager: Exception inserting supplier.{0}", e.getMessage());
             throw new CreateException(e.getMessage());
         }
     }
+
+    /**
+     * Deletes a {@link Supplier}, its products and the purchases of those
+     * products. Runs as bulk statements inside the container transaction of
+     * this call, so either everything is deleted or nothing is. The pending
+     * ledger lines of the products are flagged as aggregated first, so the
+     * ledger timer cannot recreate their purchases.
+     *
+     * @param supplierId The ID of the {@link Supplier} to be deleted.
+     * @throws DeleteException If an exception occurs during the delete
+     * operation.
+     */
+    @Override
+    public void deleteSupplierWithProducts(Integer supplierId) throws DeleteException {
+        LOGGER.info("SupplierManager: Deleting supplier with its products.");
+        try {
+            em.createNamedQuery("settleLinesBySupplierId")
+                    .setParameter("supplier_id", supplierId)
+                    .executeUpdate();
+            int purchases = em.createNamedQuery("deleteBySupplierId")
+                    .setParameter("supplier_id", supplierId)
+                    .executeUpdate();
+            int products = em.createNamedQuery("deleteProductBySupplierId")
+                    .setParameter("supplier_id", supplierId)
+                    .executeUpdate();
+            em.createNamedQuery("deleteSupplier")
+                    .setParameter("supplierId", supplierId)
+                    .executeUpdate();
+            catalog.supplierRemoved(supplierId);
+            LOGGER.log(Level.INFO, "SupplierManager: Supplier deleted with {0} products and {1} purchases.",
+                    new Object[]{products, purchases});
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "SupplierManager: Exception deleting supplier with its products.", e);
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
+            throw new DeleteException(e.getMessage());
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package ejb;
 
+import ejb.local.CatalogManagerEJBLocal;
 import ejb.local.TagManagerEJBLocal;
 import entities.Tag;
 import exceptions.CreateException;
@@ -7,6 +8,9 @@ import exceptions.DeleteException;
 import exceptions.ReadException;
 import exceptions.UpdateException;
 
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -33,6 +37,18 @@ public class TagManagerEJB implements TagManagerEJBLocal {
     @PersistenceContext
     private EntityManager em;
 
+    /**
+     * Session context, used to roll back multi-statement operations.
+     */
+    @Resource
+    private SessionContext context;
+
+    /**
+     * Catalog kept in memory, notified of every write.
+     */
+    @EJB
+    private CatalogManagerEJBLocal catalog;
+
     /**
      * Updates a {@link Tag}'s data in the underlying application storage.
      *
@@ -50,6 +66,7 @@ public class TagManagerEJB implements TagManagerEJBLocal {
                     .setParameter("active", tag.getActive())
                     .setParameter("tagId", tag.getTag_id())
                     .executeUpdate();
+            catalog.tagSaved(tag.getTag_id());
             LOGGER.info("TagManager: Tag updated.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "TagManager: Exception updating tag.", e);
@@ -71,6 +88,7 @@ public class TagManagerEJB implements TagManagerEJBLocal {
             em.createNamedQuery("deleteTag")
                     .setParameter("tagId", tagId)
                     .executeUpdate();
+            catalog.tagRemoved(tagId);
             LOGGER.info("TagManager: Tag deleted.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "TagManager: Exception deleting tag.", e);
@@ -135,10 +153,48 @@ public class TagManagerEJB implements TagManagerEJBLocal {
         try {
             // Persists a new {@link Tag} entity.
             em.persist(tag);
+            catalog.tagSaved(tag.getTag_id());
             LOGGER.info("TagManager: Tag inserted.");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "TagManager: Exception inserting tag.", e);
             throw new CreateException(e.getMessage());
         }
     }
+
+    /**
+     * Deletes a {@link Tag}, its products and the purchases of those products
+     * from the underlying application storage. Runs as bulk statements inside
+     * the container transaction of this call, so either everything is deleted
+     * or nothing is. The pending ledger lines of the products are flagged as
+     * aggregated first, so the ledger timer cannot recreate their purchases.
+     *
+     * @param tagId The ID of the {@link Tag} to be deleted.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    @Override
+    public void deleteTagWithProducts(Integer tagId) throws DeleteException {
+        LOGGER.info("TagManager: Deleting tag with its products.");
+        try {
+            em.createNamedQuery("settleLinesByTagId")
+                    .setParameter("tag_id", tagId)
+                    .executeUpdate();
+            int purchases = em.createNamedQuery("deleteByTagId")
+                    .setParameter("tag_id", tagId)
+                    .executeUpdate();
+            int products = em.createNamedQuery("deleteProductByTagId")
+                    .setParameter("tag_id", tagId)
+                    .executeUpdate();
+            em.createNamedQuery("deleteTag")
+                    .setParameter("tagId", tagId)
+                    .executeUpdate();
+            catalog.tagRemoved(tagId);
+            LOGGER.log(Level.INFO, "TagManager: Tag deleted with {0} products and {1} purchases.",
+                    new Object[]{products, purchases});
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "TagManager: Exception deleting tag with its products.", e);
+            // Checked exceptions do not roll back on their own.
+            context.setRollbackOnly();
+            throw new DeleteException(e.getMessage());
+        }
+    }
 }
@@ -3,22 +3,25 @@ package ejb;
 import ejb.local.UserManagerEJBLocal;
 import encryption.EncriptionManager;
 import encryption.EncriptionManagerFactory;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 
 import entities.User;
+import entities.UserSummary;
+import entities.UserType;
 import exceptions.CreateException;
 import exceptions.DeleteException;
 import exceptions.ReadException;
 import exceptions.UpdateException;
-import java.util.ArrayList;
-import java.util.Base64;
-import javax.persistence.PersistenceContext;
+
 /**
  * @author dani
  */
@@ -36,20 +39,20 @@ public class UserManagerEJB implements UserManagerEJBLocal {
     private EncriptionManager encriptionManager = EncriptionManagerFactory.getInstance();
 
     /**
-     * Finds a user by ID.
+     * Finds a user by ID. Only the columns of the user table are read.
      *
      * @param id The ID of the user to be found.
-     * @return The user object containing user data.
+     * @return The user object containing user data, without subclass data.
      * @throws ReadException If there is any exception during the process.
      */
     @Override
     public User findUserById(Integer id) throws ReadException {
         try {
             LOGGER.info("UserManager: Finding user by id=" + id + ".");
-            // Using named query to find a user by ID
-            return encryptPassword((User) em.createNamedQuery("findUserById")
-                    .setParameter("id", id)
-                    .getSingleResult());
+            // Using named native query to read the user table only
+            return encryptPassword(toUser((Object[]) em.createNamedQuery("findUserRowById")
+                    .setParameter(1, id)
+                    .getSingleResult()));
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "UserManager: Exception finding user by id:", e);
             throw new ReadException(e.getMessage());
@@ -57,20 +60,20 @@ public class UserManagerEJB implements UserManagerEJBLocal {
     }
 
     /**
-     * Finds a user by username.
+     * Finds a user by username. Only the columns of the user table are read.
      *
      * @param username The username of the user to be found.
-     * @return The user object containing user data.
+     * @return The user object containing user data, without subclass data.
      * @throws ReadException If there is any exception during the process.
      */
     @Override
     public User findUserByUsername(String username) throws ReadException {
         try {
             LOGGER.info("UserManager: Finding user by username = " + username + ".");
-            // Using named query to find a user by username
-            return encryptPassword((User) em.createNamedQuery("findUserByUsername")
-                    .setParameter("username", username)
-                    .getSingleResult());
+            // Using named native query to read the user table only
+            return encryptPassword(toUser((Object[]) em.createNamedQuery("findUserRowByUsername")
+                    .setParameter(1, username)
+                    .getSingleResult()));
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "UserManager: Exception finding user by username:", e);
             throw new ReadException(e.getMessage());
@@ -78,76 +81,91 @@ public class UserManagerEJB implements UserManagerEJBLocal {
     }
 
     /**
-     * Finds users by active state.
+     * Finds the public view of every user. The password column is not
+     * selected, so nothing is encrypted.
      *
-     * @param active The state of the user as a boolean.
-     * @return The list of user objects containing user data.
+     * @return A list of user summaries, by ID.
      * @throws ReadException If there is any exception during the process.
      */
     @Override
-    public List<User> findUserByActive(Boolean active) throws ReadException {
-        List<User> results;
+    public List<UserSummary> findUserSummaries() throws ReadException {
         try {
-            LOGGER.info("UserManager: Finding user by active state.");
-            // Using named query to find users by active state
-            results = em.createNamedQuery("findUserByActive")
-                    .setParameter("active", active)
-                    .getResultList();
-            // Encrypting passwords for all users in the result list
-            List<User> newList = new ArrayList<>();
-            for (User user : results) {
-                newList.add(encryptPassword(user));
-            }
-            return newList;
+            LOGGER.info("UserManager: Finding all user summaries.");
+            return toUserSummaries(em.createNamedQuery("findUserSummaries").getResultList());
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "UserManager: Exception finding user by active state:", e);
+            LOGGER.log(Level.SEVERE, "UserManager: Exception finding all user summaries:", e);
             throw new ReadException(e.getMessage());
         }
     }
 
     /**
-     * Finds all users in the application data storage.
+     * Finds the public view of the users with a given active state. The
+     * password column is not selected, so nothing is encrypted.
      *
-     * @return A list of user objects.
+     * @param active The state of the users as a boolean.
+     * @return A list of user summaries, by ID.
      * @throws ReadException If there is any exception during the process.
      */
     @Override
-    public List<User> findAllUsers() throws ReadException {
-        List<User> results;
+    public List<UserSummary> findUserSummariesByActive(Boolean active) throws ReadException {
         try {
-            LOGGER.info("UserManager: Finding all users.");
-            // Using named query to find all users
-            results = em.createNamedQuery("findAllUsers").getResultList();
-            // Encrypting passwords for all users in the result list
-            List<User> newList = new ArrayList<>();
-            for (User user : results) {
-                newList.add(encryptPassword(user));
-            }
-            return newList;
+            LOGGER.info("UserManager: Finding user summaries by active state.");
+            return toUserSummaries(em.createNamedQuery("findUserSummariesByActive")
+                    .setParameter(1, active)
+                    .getResultList());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "UserManager: Exception finding user summaries by active state:", e);
+            throw new ReadException(e.getMessage());
+        }
+    }
+
+    /**
+     * Finds a page of user summaries whose ID is greater than the given
+     * cursor. The password column is not selected, so nothing is encrypted.
+     * Each page is read whole in a short transaction of its own, so no
+     * connection stays open between pages.
+     *
+     * @param afterId The ID of the last user of the previous page, or null to
+     * start from the first user.
+     * @param limit The maximum number of users to find.
+     * @return A list of user summaries, by ID.
+     * @throws ReadException If there is any exception during the process.
+     */
+    @Override
+    public List<UserSummary> findUserSummariesAfter(Integer afterId, int limit) throws ReadException {
+        try {
+            LOGGER.log(Level.FINE, "UserManager: Finding user summaries after id={0}.", afterId);
+            return toUserSummaries(em.createNamedQuery("findUserSummariesAfter")
+                    .setParameter(1, afterId == null ? 0 : afterId)
+                    .setParameter(2, limit)
+                    .getResultList());
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "UserManager: Exception finding all users:", e);
+            LOGGER.log(Level.SEVERE, "UserManager: Exception finding user summaries after id:", e);
             throw new ReadException(e.getMessage());
         }
     }
 
     /**
-     * Checks if there's any user with the provided credentials.
+     * Checks if there's any user with the provided credentials. Only the
+     * columns of the user table are read, so the cost does not depend on the
+     * subclass of the user nor on the purchases of a customer.
      *
      * @param username The user object's username.
      * @param password The user object's password.
-     * @return The user object containing the user data.
+     * @return The user object containing the user data, without subclass
+     * data.
      * @throws ReadException If there is any exception during the process.
      */
     @Override
     public User signIn(String username, String password) throws ReadException {
         try {
             LOGGER.info("UserManager: Signing in user.");
-            // Using named query to sign in user with given credentials
-            Query signIn = em.createNamedQuery("signIn");
-            signIn.setParameter("username", username);
-            signIn.setParameter("password", Base64.getEncoder().encodeToString(encriptionManager.decryptMessage(password)));
+            // Using named native query to check the credentials on the user table only
+            Query signIn = em.createNamedQuery("signInCredentials");
+            signIn.setParameter(1, username);
+            signIn.setParameter(2, Base64.getEncoder().encodeToString(encriptionManager.decryptMessage(password)));
 
-            return encryptPassword((User) signIn.getSingleResult());
+            return encryptPassword(toUser((Object[]) signIn.getSingleResult()));
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "UserManager: Exception signing in user:", e);
             throw new ReadException(e.getMessage());
@@ -198,15 +216,22 @@ public class UserManagerEJB implements UserManagerEJBLocal {
     /**
      * Updates a user's data in the underlying application storage.
      *
-     * @param user The user object containing the user data.
+     * @param user The user object containing the user data. A null password,
+     * as in a {@link UserSummary} sent back, keeps the current one.
      * @throws UpdateException If there is any exception during the process.
      */
     @Override
     public void updateUser(User user) throws UpdateException {
         try {
             LOGGER.info("UserManager: Updating user.");
-            // Decrypting and encoding the user's password before merging
-            user.setPassword(Base64.getEncoder().encodeToString(encriptionManager.decryptMessage(user.getPassword())));
+            if (user.getPassword() == null) {
+                user.setPassword((String) em.createNamedQuery("findPasswordById")
+                        .setParameter(1, user.getId())
+                        .getSingleResult());
+            } else {
+                // Decrypting and encoding the user's password before merging
+                user.setPassword(Base64.getEncoder().encodeToString(encriptionManager.decryptMessage(user.getPassword())));
+            }
             em.merge(user);
             LOGGER.info("UserManager: User updated");
         } catch (Exception e) {
@@ -237,6 +262,60 @@ public class UserManagerEJB implements UserManagerEJBLocal {
         }
     }
 
+    /**
+     * Builds a user from the id, username, password, active and userType
+     * columns of the user table, in that order.
+     *
+     * @param row The column values.
+     * @return The user object, without subclass data.
+     */
+    private static User toUser(Object[] row) {
+        User user = new User();
+        user.setId(((Number) row[0]).intValue());
+        user.setUsername((String) row[1]);
+        user.setPassword((String) row[2]);
+        user.setActive(toBoolean(row[3]));
+        user.setUserType(UserType.values()[((Number) row[4]).intValue()]);
+        return user;
+    }
+
+    /**
+     * Builds user summaries from rows of the id, username, active and
+     * userType columns of the user table, in that order.
+     *
+     * @param rows The rows.
+     * @return The user summaries.
+     */
+    private static List<UserSummary> toUserSummaries(List<?> rows) {
+        List<UserSummary> summaries = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            summaries.add(toUserSummary((Object[]) row));
+        }
+        return summaries;
+    }
+
+    /**
+     * Builds a user summary from the id, username, active and userType
+     * columns of the user table, in that order.
+     *
+     * @param row The column values.
+     * @return The user summary.
+     */
+    private static UserSummary toUserSummary(Object[] row) {
+        return new UserSummary(((Number) row[0]).intValue(), (String) row[1],
+                UserType.values()[((Number) row[3]).intValue()], toBoolean(row[2]));
+    }
+
+    /**
+     * Converts a BIT or TINYINT column value to a boolean.
+     *
+     * @param value The value read from the column.
+     * @return The boolean value.
+     */
+    private static boolean toBoolean(Object value) {
+        return value instanceof Boolean ? (Boolean) value : ((Number) value).intValue() != 0;
+    }
+
     /**
      * Encrypts the password of the given user.
      *
@@ -0,0 +1,23 @@
+package ejb.local;
+
+import entities.CacheStatistics;
+import exceptions.ReadException;
+import javax.ejb.Local;
+
+/**
+ * EJB Local Interface for inspecting the second-level cache.
+ *
+ * @author Alexander Epelde
+ */
+@Local
+public interface CacheManagerEJBLocal {
+
+    /**
+     * Retrieves the hit and miss counters of the second-level and query
+     * caches.
+     *
+     * @return The {@link CacheStatistics} object.
+     * @throws ReadException If there is any exception during processing.
+     */
+    public CacheStatistics getStatistics() throws ReadException;
+}
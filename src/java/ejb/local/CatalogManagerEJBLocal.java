@@ -0,0 +1,226 @@
+package ejb.local;
+
+import entities.ProductFacets;
+import entities.ProductSummary;
+import entities.Suggestion;
+import entities.Supplier;
+import entities.Tag;
+import java.util.List;
+import javax.ejb.Local;
+
+/**
+ * EJB Local Interface for the in-memory catalog. Reads are served from an
+ * immutable snapshot of products, tags and suppliers; the managers writing
+ * those entities notify the catalog, which applies the change to a new
+ * snapshot once their transaction commits.
+ *
+ * @author Alexander Epelde
+ */
+@Local
+public interface CatalogManagerEJBLocal {
+
+    /**
+     * Retrieves every product, ordered by ID.
+     *
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    public List<ProductSummary> getProducts();
+
+    /**
+     * Retrieves a product by its ID.
+     *
+     * @param productId The ID of the product.
+     * @return The {@link ProductSummary}, or null if there is no such product.
+     */
+    public ProductSummary getProduct(Integer productId);
+
+    /**
+     * Retrieves a page of products whose ID is greater than the given cursor,
+     * ordered by ID.
+     *
+     * @param afterId The ID of the last product of the previous page, or null
+     * to start from the first product.
+     * @param limit The maximum number of products to retrieve.
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    public List<ProductSummary> getProductsAfter(Integer afterId, int limit);
+
+    /**
+     * Retrieves the products of a tag, ordered by ID.
+     *
+     * @param tagId The ID of the tag.
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    public List<ProductSummary> getProductsByTag(Integer tagId);
+
+    /**
+     * Retrieves the products of a supplier, ordered by ID.
+     *
+     * @param supplierId The ID of the supplier.
+     * @return An unmodifiable List of {@link ProductSummary} objects.
+     */
+    public List<ProductSummary> getProductsBySupplier(Integer supplierId);
+
+    /**
+     * Searches the products matching any term of a query in their brand,
+     * model, description, other information or product number, ranked by
+     * BM25.
+     *
+     * @param query The text to search.
+     * @param limit The maximum number of products to retrieve.
+     * @return A List of {@link ProductSummary} objects, best match first.
+     */
+    public List<ProductSummary> searchProducts(String query, int limit);
+
+    /**
+     * Searches like {@link #searchProducts(String, int)}, but a query term
+     * missing from the products is replaced by the closest terms within one
+     * or two typos, found through a trigram index and ranked by Levenshtein
+     * distance.
+     *
+     * @param query The text to search.
+     * @param limit The maximum number of products to retrieve.
+     * @return A List of {@link ProductSummary} objects, best match first.
+     */
+    public List<ProductSummary> fuzzySearchProducts(String query, int limit);
+
+    /**
+     * Completes a prefix with the most popular product brands, product
+     * models and supplier names. The prefix is compared without case nor
+     * diacritics, and popularity is the number of products.
+     *
+     * @param prefix The typed text.
+     * @param limit The maximum number of completions.
+     * @return The completions, most popular first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit);
+
+    /**
+     * Filters the products by tag, supplier and price, and counts the
+     * matching products per tag and per supplier. Each facet is counted with
+     * every filter applied but its own. Null filters are not applied.
+     *
+     * @param tagId The ID of the tag of the products, or null.
+     * @param supplierId The ID of the supplier of the products, or null.
+     * @param minPrice The lowest price, inclusive, or null.
+     * @param maxPrice The highest price, inclusive, or null.
+     * @param afterId The ID of the last product of the previous page, or null
+     * to start from the first product.
+     * @param limit The maximum number of products to retrieve.
+     * @return The {@link ProductFacets} with the matching products ordered by
+     * ID and the facet counts, largest first.
+     */
+    public ProductFacets getProductFacets(Integer tagId, Integer supplierId, Double minPrice, Double maxPrice,
+            Integer afterId, int limit);
+
+    /**
+     * Gets an opaque token identifying the current state of the product
+     * list. It changes whenever any product changes. Callers must read the
+     * token before the data it stands for: the data is then at least as new
+     * as the token, and a later change never goes unnoticed.
+     *
+     * @return The version token.
+     */
+    public String getProductsVersion();
+
+    /**
+     * Gets an opaque token identifying the current state of the tag list.
+     * Read it before the tags, see {@link #getProductsVersion()}.
+     *
+     * @return The version token.
+     */
+    public String getTagsVersion();
+
+    /**
+     * Gets an opaque token identifying the current state of the supplier
+     * list. Read it before the suppliers, see {@link #getProductsVersion()}.
+     *
+     * @return The version token.
+     */
+    public String getSuppliersVersion();
+
+    /**
+     * Retrieves every tag, ordered by ID.
+     *
+     * @return An unmodifiable List of {@link Tag} objects.
+     */
+    public List<Tag> getTags();
+
+    /**
+     * Retrieves a tag by its ID.
+     *
+     * @param tagId The ID of the tag.
+     * @return The {@link Tag}, or null if there is no such tag.
+     */
+    public Tag getTag(Integer tagId);
+
+    /**
+     * Retrieves every supplier, ordered by ID.
+     *
+     * @return An unmodifiable List of {@link Supplier} objects.
+     */
+    public List<Supplier> getSuppliers();
+
+    /**
+     * Retrieves a supplier by its ID.
+     *
+     * @param supplierId The ID of the supplier.
+     * @return The {@link Supplier}, or null if there is no such supplier.
+     */
+    public Supplier getSupplier(Integer supplierId);
+
+    /**
+     * Notifies that a product was inserted or updated.
+     *
+     * @param productId The ID of the product.
+     */
+    public void productSaved(Integer productId);
+
+    /**
+     * Notifies that a product was deleted.
+     *
+     * @param productId The ID of the product.
+     */
+    public void productRemoved(Integer productId);
+
+    /**
+     * Notifies that a tag was inserted or updated. The tag is also evicted
+     * from the second-level cache once the transaction ends.
+     *
+     * @param tagId The ID of the tag.
+     */
+    public void tagSaved(Integer tagId);
+
+    /**
+     * Notifies that a tag was deleted together with its products. The tag is
+     * also evicted from the second-level cache once the transaction ends.
+     *
+     * @param tagId The ID of the tag.
+     */
+    public void tagRemoved(Integer tagId);
+
+    /**
+     * Notifies that a supplier was inserted or updated. The supplier is also
+     * evicted from the second-level cache once the transaction ends.
+     *
+     * @param supplierId The ID of the supplier.
+     */
+    public void supplierSaved(Integer supplierId);
+
+    /**
+     * Notifies that a supplier was deleted together with its products. The
+     * supplier is also evicted from the second-level cache once the
+     * transaction ends.
+     *
+     * @param supplierId The ID of the supplier.
+     */
+    public void supplierRemoved(Integer supplierId);
+
+    /**
+     * Reloads the whole catalog from the data store, for changes that cannot
+     * be described by the other notifications. It runs outside the
+     * transaction of the caller, so it must be called once the changes are
+     * committed; changes notified while it runs are not lost.
+     */
+    public void reload();
+}
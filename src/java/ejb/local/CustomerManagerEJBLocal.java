@@ -1,6 +1,7 @@
 package ejb.local;
 
 import entities.Customer;
+import entities.CustomerSummary;
 import exceptions.CreateException;
 import exceptions.DeleteException;
 import exceptions.ReadException;
@@ -23,13 +24,14 @@ public interface CustomerManagerEJBLocal {
      * ID.
      *
      * @param customer The Customer object containing the updated personal
-     * information.
+     * information. A null password keeps the current one.
      * @throws UpdateException If an error occurs during the update process.
      */
     public void updateCustomer(Customer customer) throws UpdateException;
 
     /**
-     * Deletes a Customer identified by their ID.
+     * Deletes a Customer identified by their ID, together with their
+     * purchases, in a single transaction.
      *
      * @param id The ID of the customer to be deleted.
      * @throws DeleteException If an error occurs during the delete process.
@@ -53,15 +55,15 @@ public interface CustomerManagerEJBLocal {
     public void insertCustomer(Customer customer) throws CreateException;
 
     /**
-     * Retrieves customer information for a user identified by their user ID.
+     * Retrieves the public view of a customer, without the password nor the
+     * purchases.
      *
      * @param userId The ID of the user for whom customer information is
      * requested.
-     * @return The Customer object containing the requested customer
-     * information.
+     * @return The {@link CustomerSummary} object.
      * @throws ReadException If an error occurs during the read process.
      */
-    public Customer getCustomer(Integer userId) throws ReadException;
+    public CustomerSummary getCustomerSummary(Integer userId) throws ReadException;
 
     /**
      * Updates the balance of a customer identified by their ID.
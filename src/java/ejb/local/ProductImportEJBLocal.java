@@ -0,0 +1,44 @@
+package ejb.local;
+
+import entities.Product;
+import entities.ProductImportReport;
+import exceptions.CreateException;
+import java.io.Reader;
+import java.util.List;
+import javax.ejb.Local;
+
+/**
+ * EJB Local Interface for bulk product imports. Rows are inserted in chunks,
+ * each one in its own transaction, so a large import never holds more than a
+ * bounded number of rows in the persistence context nor in the undo log.
+ *
+ * @author Alexander Epelde
+ */
+@Local
+public interface ProductImportEJBLocal {
+
+    /**
+     * Reads products from NDJSON or CSV input and inserts the valid ones.
+     * The columns, or JSON fields, are productNumber, which is required,
+     * brand, model, otherInfo, weight, description, price, supplierId and
+     * tagId. Invalid rows are skipped and reported; the valid ones are
+     * inserted even if others fail.
+     *
+     * @param input The input, read line by line.
+     * @param csv True for CSV input with a header line, false for NDJSON.
+     * @return The {@link ProductImportReport} with the rows imported and the
+     * rows rejected.
+     * @throws CreateException If the input cannot be read. The chunks
+     * inserted until then stay inserted.
+     */
+    public ProductImportReport importProducts(Reader input, boolean csv) throws CreateException;
+
+    /**
+     * Inserts a chunk of products. The IDs of the products are ignored, and
+     * their supplier and tag only need their IDs.
+     *
+     * @param products The products to insert.
+     * @throws CreateException If any product cannot be inserted; then none is.
+     */
+    public void insertChunk(List<Product> products) throws CreateException;
+}
@@ -2,10 +2,14 @@ package ejb.local;
 
 import entities.Customer;
 import entities.ProductsBought;
+import entities.PurchaseHistoryEntry;
+import entities.PurchaseRecord;
 import exceptions.DeleteException;
 import exceptions.ReadException;
 import exceptions.UpdateException;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import javax.ejb.Local;
 
 /**
@@ -28,6 +32,30 @@ public interface ProductsBoughtManagerEJBLocal {
      */
     public void purchaseProduct(ProductsBought productBought) throws UpdateException;
 
+    /**
+     * Adds an amount to what a customer has bought of a product, creating the
+     * purchase if it does not exist yet. The increment is atomic, so
+     * concurrent purchases of the same product by the same customer add up.
+     *
+     * @param productBought The purchase, whose amount is the quantity to add.
+     * @throws UpdateException If an error occurs during the update process.
+     */
+    public void addPurchase(ProductsBought productBought) throws UpdateException;
+
+    /**
+     * Applies a whole basket in a single transaction: debits its cost, computed
+     * from the current product prices, from the customer's balance and adds
+     * every line of the basket to the customer's purchases. The debit only
+     * happens if the balance covers it, atomically, so concurrent checkouts
+     * are safe. If any step fails nothing is changed.
+     *
+     * @param customer The customer, carrying the basket in its set of
+     * products bought, with the quantity bought now as the amount of each
+     * line. Its balance is ignored.
+     * @throws UpdateException If an error occurs during the update process.
+     */
+    public void checkout(Customer customer) throws UpdateException;
+
     /**
      * Updates the amount of a purchased product for a customer.
      *
@@ -47,6 +75,35 @@ public interface ProductsBoughtManagerEJBLocal {
      */
     public List<ProductsBought> getProductsBought(Integer customerId) throws ReadException;
 
+    /**
+     * Retrieves one page of the purchase history of a customer, newest
+     * first, in a single query that loads no entity.
+     *
+     * @param customerId The ID of the customer.
+     * @param beforeTimestamp The purchase time of the last entry of the
+     * previous page, or null for the first page.
+     * @param beforeProductId The product ID of the last entry of the
+     * previous page, or null for the first page.
+     * @param limit The maximum number of entries.
+     * @return The entries, newest first.
+     * @throws ReadException If an error occurs during the read process.
+     */
+    public List<PurchaseHistoryEntry> getPurchaseHistory(Integer customerId, Date beforeTimestamp,
+            Integer beforeProductId, int limit) throws ReadException;
+
+    /**
+     * Reads the purchases made within a time range, with their customer and
+     * product data, through a forward-only cursor and hands them, one by
+     * one, to a consumer. No entity is loaded, so memory use does not grow
+     * with the number of purchases.
+     *
+     * @param from The earliest purchase time, inclusive, or null.
+     * @param to The latest purchase time, exclusive, or null.
+     * @param consumer The consumer receiving the purchases.
+     * @throws ReadException If an error occurs during the read process.
+     */
+    public void exportPurchases(Date from, Date to, Consumer<PurchaseRecord> consumer) throws ReadException;
+
     /**
      * Deletes products bought by a customer based on the specified customer ID.
      *
@@ -0,0 +1,39 @@
+package ejb.local;
+
+import exceptions.UpdateException;
+import javax.ejb.Local;
+
+/**
+ * EJB Local Interface for maintaining the purchase totals from the purchase
+ * ledger. The totals are folded from the ledger in chunks, each one in its
+ * own transaction.
+ *
+ * @author Alexander Epelde
+ */
+@Local
+public interface PurchaseLedgerEJBLocal {
+
+    /**
+     * Recomputes every purchase total from the ledger. The call returns
+     * immediately; the rebuild runs on a container thread.
+     */
+    public void rebuild();
+
+    /**
+     * Adds at most a given number of unaggregated ledger lines to the
+     * purchase totals and flags them as aggregated.
+     *
+     * @param chunkSize The maximum number of lines to aggregate.
+     * @return The number of lines aggregated.
+     * @throws UpdateException If there is any exception during processing.
+     */
+    public int aggregateChunk(int chunkSize) throws UpdateException;
+
+    /**
+     * Deletes every purchase total and flags every ledger line as
+     * unaggregated, so the totals can be folded again from scratch.
+     *
+     * @throws UpdateException If there is any exception during processing.
+     */
+    public void resetTotals() throws UpdateException;
+}
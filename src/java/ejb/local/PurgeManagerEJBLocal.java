@@ -0,0 +1,40 @@
+package ejb.local;
+
+import entities.PurgeJob;
+import java.util.List;
+import javax.ejb.Local;
+
+/**
+ * EJB Local Interface for starting background purges of tags and suppliers
+ * and following their progress.
+ *
+ * @author Alexander Epelde
+ */
+@Local
+public interface PurgeManagerEJBLocal {
+
+    /**
+     * Starts deleting an owner, its products and their purchases in the
+     * background. The call returns as soon as the job is registered.
+     *
+     * @param ownerType The kind of owner to purge.
+     * @param ownerId The ID of the owner to purge.
+     * @return The {@link PurgeJob} tracking the purge.
+     */
+    public PurgeJob startPurge(PurgeJob.OwnerType ownerType, Integer ownerId);
+
+    /**
+     * Retrieves a purge job by its ID.
+     *
+     * @param jobId The ID of the job.
+     * @return The {@link PurgeJob}, or null if there is no such job.
+     */
+    public PurgeJob getJob(String jobId);
+
+    /**
+     * Retrieves every purge job that is running or finished recently.
+     *
+     * @return A List of {@link PurgeJob} objects.
+     */
+    public List<PurgeJob> getJobs();
+}
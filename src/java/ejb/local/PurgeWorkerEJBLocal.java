@@ -0,0 +1,67 @@
+package ejb.local;
+
+import entities.PurgeJob;
+import exceptions.DeleteException;
+import exceptions.ReadException;
+import javax.ejb.Local;
+
+/**
+ * EJB Local Interface for the worker running background purges. Each chunk
+ * operation runs in its own transaction so that no transaction holds more
+ * than a bounded number of row locks.
+ *
+ * @author Alexander Epelde
+ */
+@Local
+public interface PurgeWorkerEJBLocal {
+
+    /**
+     * Runs a purge job to completion, updating its progress as it goes. The
+     * call returns immediately; the job runs on a container thread.
+     *
+     * @param job The {@link PurgeJob} to run.
+     */
+    public void purge(PurgeJob job);
+
+    /**
+     * Counts the purchases and products owned by an owner.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @return The number of rows a purge of the owner would delete.
+     * @throws ReadException If there is any exception during processing.
+     */
+    public long countRows(PurgeJob.OwnerType ownerType, Integer ownerId) throws ReadException;
+
+    /**
+     * Deletes at most a given number of purchases of the owner's products.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @param chunkSize The maximum number of rows to delete.
+     * @return The number of rows deleted.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    public int deletePurchasesChunk(PurgeJob.OwnerType ownerType, Integer ownerId, int chunkSize) throws DeleteException;
+
+    /**
+     * Deletes at most a given number of the owner's products. Their purchases
+     * must have been deleted already.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @param chunkSize The maximum number of rows to delete.
+     * @return The number of rows deleted.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    public int deleteProductsChunk(PurgeJob.OwnerType ownerType, Integer ownerId, int chunkSize) throws DeleteException;
+
+    /**
+     * Deletes the owner itself. Its products must have been deleted already.
+     *
+     * @param ownerType The kind of owner.
+     * @param ownerId The ID of the owner.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    public void deleteOwner(PurgeJob.OwnerType ownerType, Integer ownerId) throws DeleteException;
+}
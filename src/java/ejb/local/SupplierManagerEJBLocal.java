@@ -60,4 +60,13 @@ public interface SupplierManagerEJBLocal {
      */
     public void insertSupplier(Supplier supplier) throws CreateException;
 
+    /**
+     * Deletes a {@link Supplier} together with all of its products and every
+     * purchase of those products, in a single transaction and with a constant
+     * number of bulk statements.
+     *
+     * @param supplierId The ID of the {@link Supplier} to be deleted.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    public void deleteSupplierWithProducts(Integer supplierId) throws DeleteException;
 }
@@ -57,4 +57,13 @@ public interface TagManagerEJBLocal {
      */
     public void insertTag(Tag tag) throws CreateException;
 
+    /**
+     * Deletes a {@link Tag} together with all of its products and every
+     * purchase of those products, in a single transaction and with a constant
+     * number of bulk statements.
+     *
+     * @param tagId The ID of the {@link Tag} to be deleted.
+     * @throws DeleteException If there is any exception during processing.
+     */
+    public void deleteTagWithProducts(Integer tagId) throws DeleteException;
 }
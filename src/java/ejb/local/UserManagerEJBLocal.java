@@ -3,6 +3,7 @@ package ejb.local;
 import java.util.List;
 
 import entities.User;
+import entities.UserSummary;
 import exceptions.CreateException;
 import exceptions.DeleteException;
 import exceptions.ReadException;
@@ -13,40 +14,54 @@ import javax.ejb.Local;
 public interface UserManagerEJBLocal {
 
     /**
-     * Finds a {@link User} by its id.
+     * Finds a {@link User} by its id, reading the user table only.
      *
      * @param id The id of the user to be found.
-     * @return The {@link User} object containing user data.
+     * @return The {@link User} object containing user data, without subclass
+     * data.
      * @throws ReadException If there is any Exception the process.
      */
     public User findUserById(Integer id) throws ReadException;
 
     /**
-     * Finds a {@link User} by its username.
+     * Finds a {@link User} by its username, reading the user table only.
      *
      * @param username
-     * @return The {@link User} object containing user data.
+     * @return The {@link User} object containing user data, without subclass
+     * data.
      * @throws ReadException If there is any Exception the process.
      */
     public User findUserByUsername(String username) throws ReadException;
 
     /**
-     * Finds a {@link User} by its state (active).
+     * Finds the public view of every user, without passwords.
      *
-     * @param active The state of the user as a boolean.
-     * @return The {@link User} object containing user data.
+     * @return A List of {@link UserSummary} objects.
      * @throws ReadException If there is any Exception the process.
      */
-    public List<User> findUserByActive(Boolean active) throws ReadException;
+    public List<UserSummary> findUserSummaries() throws ReadException;
 
     /**
-     * Finds a List of {@link User} objects containing data for all users in the
-     * application data storage.
+     * Finds the public view of the users with a given active state, without
+     * passwords.
      *
-     * @return A List of {@link User} objects.
+     * @param active The state of the users as a boolean.
+     * @return A List of {@link UserSummary} objects.
      * @throws ReadException If there is any Exception the process.
      */
-    public List<User> findAllUsers() throws ReadException;
+    public List<UserSummary> findUserSummariesByActive(Boolean active) throws ReadException;
+
+    /**
+     * Finds a page of the public view of the users whose ID is greater than
+     * the given cursor, ordered by ID, without passwords.
+     *
+     * @param afterId The ID of the last user of the previous page, or null to
+     * start from the first user.
+     * @param limit The maximum number of users to find.
+     * @return A List of {@link UserSummary} objects.
+     * @throws ReadException If there is any Exception the process.
+     */
+    public List<UserSummary> findUserSummariesAfter(Integer afterId, int limit) throws ReadException;
 
     /**
      * Modifies the password of a specific {@link User}.
@@ -78,7 +93,8 @@ public interface UserManagerEJBLocal {
     /**
      * Updates a user's data in the underlying application storage.
      *
-     * @param user The {@link User} object containing the user data.
+     * @param user The {@link User} object containing the user data. A null
+     * password keeps the current one.
      * @throws UpdateException If there is any Exception the process.
      */
     public void updateUser(User user) throws UpdateException;
@@ -25,6 +25,27 @@ public class EncriptionManagerImpl implements EncriptionManager {
     
     private static SecretKey symmetricKey;
 
+    /**
+     * AES cipher of each thread set up for encryption. Cipher objects are not
+     * thread safe, but one can be reused for any number of messages by the
+     * same thread, so each thread creates and initializes its own only once.
+     * A cipher that fails is dropped, so the next call starts afresh.
+     */
+    private static final ThreadLocal<Cipher> ENCRYPT_CIPHER = ThreadLocal.withInitial(
+            () -> newCipher("AES", Cipher.ENCRYPT_MODE, symmetricKey));
+
+    /**
+     * AES cipher of each thread set up for decryption.
+     */
+    private static final ThreadLocal<Cipher> DECRYPT_CIPHER = ThreadLocal.withInitial(
+            () -> newCipher("AES", Cipher.DECRYPT_MODE, symmetricKey));
+
+    /**
+     * RSA cipher of each thread set up for encrypting the symmetric key.
+     */
+    private static final ThreadLocal<Cipher> KEY_CIPHER = ThreadLocal.withInitial(
+            () -> newCipher("RSA/ECB/PKCS1Padding", Cipher.ENCRYPT_MODE, privateKey));
+
     /**
      * Constructor for EncriptionManagerImpl. Initializes asymmetric and
      * symmetric keys.
@@ -47,11 +68,10 @@ public class EncriptionManagerImpl implements EncriptionManager {
     @Override
     public byte[] encryptMessage(String message) throws InternalServerErrorException {
         try {
-            LOGGER.info("Encrypting message");
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.ENCRYPT_MODE, symmetricKey);
-            return cipher.doFinal(Base64.getDecoder().decode(message));
+            LOGGER.fine("Encrypting message");
+            return ENCRYPT_CIPHER.get().doFinal(Base64.getDecoder().decode(message));
         } catch (Exception e) {
+            ENCRYPT_CIPHER.remove();
             LOGGER.log(Level.SEVERE, "Error encrypting message", e);
             throw new InternalServerErrorException(e);
         }
@@ -68,11 +88,10 @@ public class EncriptionManagerImpl implements EncriptionManager {
     @Override
     public byte[] decryptMessage(String message) throws InternalServerErrorException {
         try {
-            LOGGER.info("Decrypting message");
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, symmetricKey);
-            return cipher.doFinal(Base64.getDecoder().decode(message));
+            LOGGER.fine("Decrypting message");
+            return DECRYPT_CIPHER.get().doFinal(Base64.getDecoder().decode(message));
         } catch (Exception e) {
+            DECRYPT_CIPHER.remove();
             LOGGER.log(Level.SEVERE, "Error decrypting message", e);
             throw new InternalServerErrorException(e);
         }
@@ -109,15 +128,34 @@ public class EncriptionManagerImpl implements EncriptionManager {
     public byte[] getSymmetricKey() throws InternalServerErrorException {
         try {
             LOGGER.info("Encrypting symmetric key");
-            Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
-            cipher.init(Cipher.ENCRYPT_MODE, privateKey);
-            return cipher.doFinal(symmetricKey.getEncoded());
+            return KEY_CIPHER.get().doFinal(symmetricKey.getEncoded());
         } catch (Exception e) {
+            KEY_CIPHER.remove();
             LOGGER.log(Level.SEVERE, "Error encrypting symmetric key", e);
             throw new InternalServerErrorException(e);
         }
     }
 
+    /**
+     * Creates a cipher and initializes it with a key.
+     *
+     * @param transformation The transformation of the cipher.
+     * @param mode The operation mode of the cipher.
+     * @param key The key.
+     * @return The initialized cipher.
+     * @throws InternalServerErrorException if the cipher cannot be created.
+     */
+    private static Cipher newCipher(String transformation, int mode, Key key) throws InternalServerErrorException {
+        try {
+            Cipher cipher = Cipher.getInstance(transformation);
+            cipher.init(mode, key);
+            return cipher;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error creating " + transformation + " cipher", e);
+            throw new InternalServerErrorException(e);
+        }
+    }
+
     /**
      * Retrieves the private key from the file system.
      *
@@ -0,0 +1,249 @@
+package encryption;
+
+import entities.UserType;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * Issues and checks the access tokens handed out on sign-in, so clients do
+ * not have to send their credentials again. A token carries the user ID, the
+ * user type, its issue time and a random token ID, signed with HMAC-SHA256;
+ * checking it takes no database access nor decryption. Revocations are kept
+ * in memory until the tokens they cover would have expired anyway.
+ *
+ * The signing key is generated when the application starts, so a restart
+ * signs every client out.
+ *
+ * @author Alexander Epelde
+ */
+public final class TokenManager {
+
+    private static final Logger LOGGER = Logger.getLogger(TokenManager.class.getName());
+
+    /**
+     * Algorithm of the token signature.
+     */
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * Time a token stays valid after being issued.
+     */
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(8);
+
+    /**
+     * The single instance of the class.
+     */
+    private static final TokenManager INSTANCE = new TokenManager();
+
+    private final SecretKey key;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Signature engine of each thread, created once per thread.
+     */
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    /**
+     * Expiry times of the revoked tokens, by token ID.
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * Revocation times by user ID; tokens issued up to then are revoked.
+     */
+    private final Map<Integer, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    /**
+     * Identity carried by a valid token.
+     */
+    public static final class Claims {
+
+        private final Integer userId;
+        private final UserType userType;
+        private final String tokenId;
+        private final long expiry;
+
+        private Claims(Integer userId, UserType userType, String tokenId, long expiry) {
+            this.userId = userId;
+            this.userType = userType;
+            this.tokenId = tokenId;
+            this.expiry = expiry;
+        }
+
+        /**
+         * Gets the ID of the signed-in user.
+         *
+         * @return The user ID.
+         */
+        public Integer getUserId() {
+            return userId;
+        }
+
+        /**
+         * Gets the type of the signed-in user.
+         *
+         * @return The user type.
+         */
+        public UserType getUserType() {
+            return userType;
+        }
+    }
+
+    private TokenManager() {
+        try {
+            key = KeyGenerator.getInstance(ALGORITHM).generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the single instance of the class.
+     *
+     * @return The token manager.
+     */
+    public static TokenManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Issues a token for a signed-in user.
+     *
+     * @param userId The ID of the user.
+     * @param userType The type of the user.
+     * @return The token, made of URL-safe characters.
+     */
+    public String issue(Integer userId, UserType userType) {
+        String payload = userId + "." + userType.ordinal() + "." + System.currentTimeMillis()
+                + "." + Long.toString(random.nextLong() & Long.MAX_VALUE, Character.MAX_RADIX);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload.getBytes(StandardCharsets.US_ASCII))
+                + "." + encoder.encodeToString(sign(payload));
+    }
+
+    /**
+     * Checks a token.
+     *
+     * @param token The token.
+     * @return The {@link Claims} of the token, or null if it is malformed,
+     * forged, expired or revoked.
+     */
+    public Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String payload;
+        byte[] signature;
+        try {
+            payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.US_ASCII);
+            signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(signature, sign(payload))) {
+            return null;
+        }
+        String[] fields = payload.split("\\.");
+        if (fields.length != 4) {
+            return null;
+        }
+        Integer userId = Integer.valueOf(fields[0]);
+        long issued = Long.parseLong(fields[2]);
+        long expiry = issued + TTL_MILLIS;
+        if (expiry <= System.currentTimeMillis() || revokedTokens.containsKey(fields[3])) {
+            return null;
+        }
+        Long userRevocation = revokedUsers.get(userId);
+        if (userRevocation != null && issued <= userRevocation) {
+            return null;
+        }
+        return new Claims(userId, UserType.values()[Integer.parseInt(fields[1])], fields[3], expiry);
+    }
+
+    /**
+     * Revokes a token, when its user signs out.
+     *
+     * @param token The token.
+     * @return True if the token was valid until now.
+     */
+    public boolean revoke(String token) {
+        Claims claims = verify(token);
+        if (claims == null) {
+            return false;
+        }
+        forgetExpiredRevocations();
+        revokedTokens.put(claims.tokenId, claims.expiry);
+        LOGGER.info("TokenManager: Token of user id=" + claims.userId + " revoked.");
+        return true;
+    }
+
+    /**
+     * Revokes every token issued so far to a user, when the user is removed.
+     *
+     * @param userId The ID of the user.
+     */
+    public void revokeUser(Integer userId) {
+        forgetExpiredRevocations();
+        revokedUsers.put(userId, System.currentTimeMillis());
+        LOGGER.info("TokenManager: Tokens of user id=" + userId + " revoked.");
+    }
+
+    /**
+     * Drops the revocations of tokens that have expired since.
+     */
+    private void forgetExpiredRevocations() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Long> it = revokedTokens.values().iterator(); it.hasNext();) {
+            if (it.next() <= now) {
+                it.remove();
+            }
+        }
+        for (Iterator<Long> it = revokedUsers.values().iterator(); it.hasNext();) {
+            if (it.next() + TTL_MILLIS <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Signs a payload with the key of the application.
+     *
+     * @param payload The payload.
+     * @return The signature.
+     */
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Creates a signature engine initialized with the key of the
+     * application.
+     *
+     * @return The signature engine.
+     */
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
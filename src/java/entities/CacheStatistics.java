@@ -0,0 +1,165 @@
+package entities;
+
+import java.io.Serializable;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Hit and miss counters of the second-level cache and of the query cache,
+ * accumulated since the application started.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement
+public class CacheStatistics implements Serializable {
+
+    /**
+     * Entities found in the second-level cache.
+     */
+    private long secondLevelCacheHitCount;
+
+    /**
+     * Entities looked up in the second-level cache but not found.
+     */
+    private long secondLevelCacheMissCount;
+
+    /**
+     * Entities put in the second-level cache.
+     */
+    private long secondLevelCachePutCount;
+
+    /**
+     * Query results found in the query cache.
+     */
+    private long queryCacheHitCount;
+
+    /**
+     * Query results looked up in the query cache but not found.
+     */
+    private long queryCacheMissCount;
+
+    /**
+     * Query results put in the query cache.
+     */
+    private long queryCachePutCount;
+
+    /**
+     * Get the number of second-level cache hits.
+     *
+     * @return the number of hits
+     */
+    public long getSecondLevelCacheHitCount() {
+        return secondLevelCacheHitCount;
+    }
+
+    /**
+     * Set the number of second-level cache hits.
+     *
+     * @param secondLevelCacheHitCount the number of hits to be set
+     */
+    public void setSecondLevelCacheHitCount(long secondLevelCacheHitCount) {
+        this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+    }
+
+    /**
+     * Get the number of second-level cache misses.
+     *
+     * @return the number of misses
+     */
+    public long getSecondLevelCacheMissCount() {
+        return secondLevelCacheMissCount;
+    }
+
+    /**
+     * Set the number of second-level cache misses.
+     *
+     * @param secondLevelCacheMissCount the number of misses to be set
+     */
+    public void setSecondLevelCacheMissCount(long secondLevelCacheMissCount) {
+        this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+    }
+
+    /**
+     * Get the number of second-level cache puts.
+     *
+     * @return the number of puts
+     */
+    public long getSecondLevelCachePutCount() {
+        return secondLevelCachePutCount;
+    }
+
+    /**
+     * Set the number of second-level cache puts.
+     *
+     * @param secondLevelCachePutCount the number of puts to be set
+     */
+    public void setSecondLevelCachePutCount(long secondLevelCachePutCount) {
+        this.secondLevelCachePutCount = secondLevelCachePutCount;
+    }
+
+    /**
+     * Get the number of query cache hits.
+     *
+     * @return the number of hits
+     */
+    public long getQueryCacheHitCount() {
+        return queryCacheHitCount;
+    }
+
+    /**
+     * Set the number of query cache hits.
+     *
+     * @param queryCacheHitCount the number of hits to be set
+     */
+    public void setQueryCacheHitCount(long queryCacheHitCount) {
+        this.queryCacheHitCount = queryCacheHitCount;
+    }
+
+    /**
+     * Get the number of query cache misses.
+     *
+     * @return the number of misses
+     */
+    public long getQueryCacheMissCount() {
+        return queryCacheMissCount;
+    }
+
+    /**
+     * Set the number of query cache misses.
+     *
+     * @param queryCacheMissCount the number of misses to be set
+     */
+    public void setQueryCacheMissCount(long queryCacheMissCount) {
+        this.queryCacheMissCount = queryCacheMissCount;
+    }
+
+    /**
+     * Get the number of query cache puts.
+     *
+     * @return the number of puts
+     */
+    public long getQueryCachePutCount() {
+        return queryCachePutCount;
+    }
+
+    /**
+     * Set the number of query cache puts.
+     *
+     * @param queryCachePutCount the number of puts to be set
+     */
+    public void setQueryCachePutCount(long queryCachePutCount) {
+        this.queryCachePutCount = queryCachePutCount;
+    }
+
+    /**
+     * Obtain a string representation of the CacheStatistics.
+     *
+     * @return The String representing the CacheStatistics.
+     */
+    @Override
+    public String toString() {
+        return "CacheStatistics [secondLevelCacheHitCount=" + secondLevelCacheHitCount
+                + ", secondLevelCacheMissCount=" + secondLevelCacheMissCount
+                + ", queryCacheHitCount=" + queryCacheHitCount
+                + ", queryCacheMissCount=" + queryCacheMissCount + "]";
+    }
+}
@@ -29,8 +29,10 @@ import javax.xml.bind.annotation.XmlRootElement;
     @NamedQuery(name = "deleteCustomerById",
             query = "DELETE FROM Customer c WHERE c.id = :customerId")
     ,
-    @NamedQuery(name = "getCustomer",
-            query = "SELECT c FROM Customer c WHERE c.id = :userId")
+    @NamedQuery(name = "getCustomerSummary",
+            query = "SELECT NEW entities.CustomerSummary(c.id, c.username, c.userType, c.active, "
+            + "c.fullName, c.email, c.street, c.postalCode, c.city, c.phone, c.balance) "
+            + "FROM Customer c WHERE c.id = :userId")
     ,
     @NamedQuery(name = "purchaseProduct",
             query = "UPDATE Customer c SET c.balance = :balance WHERE c.id = :customerId")
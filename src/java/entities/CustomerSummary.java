@@ -0,0 +1,200 @@
+package entities;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Public view of a {@link Customer}: the common user data without the
+ * password, plus the personal data of the customer. It is built from a JPQL
+ * constructor expression over the customer table, so reading it neither
+ * selects the password column nor loads the purchases of the customer, which
+ * are available from the products bought endpoints.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement(name = "customer")
+public class CustomerSummary extends UserSummary {
+
+    private static final long serialVersionUID = 1L;
+
+    // The full name of the customer
+    private String fullName;
+
+    // The email address of the customer
+    private String email;
+
+    // The street address of the customer
+    private String street;
+
+    // The postal code of the customer's address
+    private Integer postalCode;
+
+    // The city of the customer's address
+    private String city;
+
+    // The phone number of the customer
+    private String phone;
+
+    // The balance of the customer's account
+    private Double balance;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public CustomerSummary() {
+    }
+
+    /**
+     * Builds a summary from the columns selected by the getCustomerSummary
+     * named query.
+     *
+     * @param id The ID of the customer.
+     * @param username The username of the customer.
+     * @param userType The user type of the customer.
+     * @param active The active status of the customer.
+     * @param fullName The full name of the customer.
+     * @param email The email address of the customer.
+     * @param street The street address of the customer.
+     * @param postalCode The postal code of the customer's address.
+     * @param city The city of the customer's address.
+     * @param phone The phone number of the customer.
+     * @param balance The balance of the customer's account.
+     */
+    public CustomerSummary(Integer id, String username, UserType userType, boolean active,
+            String fullName, String email, String street, Integer postalCode, String city,
+            String phone, Double balance) {
+        super(id, username, userType, active);
+        this.fullName = fullName;
+        this.email = email;
+        this.street = street;
+        this.postalCode = postalCode;
+        this.city = city;
+        this.phone = phone;
+        this.balance = balance;
+    }
+
+    /**
+     * Gets the full name of the customer.
+     *
+     * @return The full name of the customer.
+     */
+    public String getFullName() {
+        return fullName;
+    }
+
+    /**
+     * Sets the full name of the customer.
+     *
+     * @param fullName The new full name of the customer.
+     */
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    /**
+     * Gets the email address of the customer.
+     *
+     * @return The email address of the customer.
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Sets the email address of the customer.
+     *
+     * @param email The new email address of the customer.
+     */
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    /**
+     * Gets the street address of the customer.
+     *
+     * @return The street address of the customer.
+     */
+    public String getStreet() {
+        return street;
+    }
+
+    /**
+     * Sets the street address of the customer.
+     *
+     * @param street The new street address of the customer.
+     */
+    public void setStreet(String street) {
+        this.street = street;
+    }
+
+    /**
+     * Gets the postal code of the customer's address.
+     *
+     * @return The postal code of the customer's address.
+     */
+    public Integer getPostalCode() {
+        return postalCode;
+    }
+
+    /**
+     * Sets the postal code of the customer's address.
+     *
+     * @param postalCode The new postal code of the customer's address.
+     */
+    public void setPostalCode(Integer postalCode) {
+        this.postalCode = postalCode;
+    }
+
+    /**
+     * Gets the city of the customer's address.
+     *
+     * @return The city of the customer's address.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Sets the city of the customer's address.
+     *
+     * @param city The new city of the customer's address.
+     */
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    /**
+     * Gets the phone number of the customer.
+     *
+     * @return The phone number of the customer.
+     */
+    public String getPhone() {
+        return phone;
+    }
+
+    /**
+     * Sets the phone number of the customer.
+     *
+     * @param phone The new phone number of the customer.
+     */
+    public void setPhone(String phone) {
+        this.phone = phone;
+    }
+
+    /**
+     * Gets the balance of the customer's account.
+     *
+     * @return The balance of the customer's account.
+     */
+    public Double getBalance() {
+        return balance;
+    }
+
+    /**
+     * Sets the balance of the customer's account.
+     *
+     * @param balance The new balance of the customer's account.
+     */
+    public void setBalance(Double balance) {
+        this.balance = balance;
+    }
+}
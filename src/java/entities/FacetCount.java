@@ -0,0 +1,102 @@
+package entities;
+
+import java.io.Serializable;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Number of products of one value of a facet, like a tag or a supplier,
+ * among the products matching a filter.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement
+public class FacetCount implements Serializable {
+
+    /**
+     * ID of the tag or supplier.
+     */
+    private Integer id;
+
+    /**
+     * Display name of the tag or supplier.
+     */
+    private String name;
+
+    /**
+     * Number of matching products.
+     */
+    private int count;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public FacetCount() {
+    }
+
+    /**
+     * Creates a facet count.
+     *
+     * @param id the ID of the tag or supplier
+     * @param name the display name of the tag or supplier
+     * @param count the number of matching products
+     */
+    public FacetCount(Integer id, String name, int count) {
+        this.id = id;
+        this.name = name;
+        this.count = count;
+    }
+
+    /**
+     * Gets the ID of the tag or supplier.
+     *
+     * @return the ID
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Sets the ID of the tag or supplier.
+     *
+     * @param id the ID to set
+     */
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the display name of the tag or supplier.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the display name of the tag or supplier.
+     *
+     * @param name the name to set
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the number of matching products.
+     *
+     * @return the count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Sets the number of matching products.
+     *
+     * @param count the count to set
+     */
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
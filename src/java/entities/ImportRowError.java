@@ -0,0 +1,76 @@
+package entities;
+
+import java.io.Serializable;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Row of a bulk import that was not imported, and why.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement
+public class ImportRowError implements Serializable {
+
+    /**
+     * Line of the row in the input, starting at 1.
+     */
+    private int line;
+
+    /**
+     * Reason the row was rejected.
+     */
+    private String message;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public ImportRowError() {
+    }
+
+    /**
+     * Creates a row error.
+     *
+     * @param line the line of the row in the input
+     * @param message the reason the row was rejected
+     */
+    public ImportRowError(int line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    /**
+     * Gets the line of the row in the input.
+     *
+     * @return the line, starting at 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Sets the line of the row in the input.
+     *
+     * @param line the line to set
+     */
+    public void setLine(int line) {
+        this.line = line;
+    }
+
+    /**
+     * Gets the reason the row was rejected.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Sets the reason the row was rejected.
+     *
+     * @param message the message to set
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
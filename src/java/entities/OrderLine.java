@@ -0,0 +1,208 @@
+package entities;
+
+import java.io.Serializable;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Entity representing a line of a {@link PurchaseOrder}: a quantity of a
+ * product bought. Lines start unaggregated and are flagged once their amount
+ * has been added to the matching {@link ProductsBought} total. Deleting a
+ * product flags its pending lines in the same transaction, so the folding
+ * timer never recreates a total for a product being deleted.
+ *
+ * @author Alexander Epelde
+ */
+@Entity
+@Table(name = "order_line", schema = "our_shop")
+@NamedQueries({
+    @NamedQuery(name = "settleLinesByProductId",
+            query = "UPDATE OrderLine l SET l.aggregated = true "
+            + "WHERE l.aggregated = false AND l.productId = :product_id")
+    ,
+    @NamedQuery(name = "settleLinesByTagId",
+            query = "UPDATE OrderLine l SET l.aggregated = true WHERE l.aggregated = false AND l.productId IN "
+            + "(SELECT p.product_id FROM Product p WHERE p.tag.id = :tag_id)")
+    ,
+    @NamedQuery(name = "settleLinesBySupplierId",
+            query = "UPDATE OrderLine l SET l.aggregated = true WHERE l.aggregated = false AND l.productId IN "
+            + "(SELECT p.product_id FROM Product p WHERE p.supplier.id = :supplier_id)")
+    ,
+    @NamedQuery(name = "settleLinesByCustomerId",
+            query = "UPDATE OrderLine l SET l.aggregated = true WHERE l.aggregated = false AND l.order.order_id IN "
+            + "(SELECT o.order_id FROM PurchaseOrder o WHERE o.customerId = :customer_id)")
+})
+public class OrderLine implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Identification field for the line.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "line_id")
+    @Column(name = "line_id")
+    private Integer line_id;
+
+    /**
+     * Order the line belongs to.
+     */
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id")
+    private PurchaseOrder order;
+
+    /**
+     * ID of the product bought. It is not a foreign key, so the ledger keeps
+     * the lines of products deleted later.
+     */
+    @NotNull
+    private Integer productId;
+
+    /**
+     * Quantity bought.
+     */
+    @NotNull
+    private Integer amount;
+
+    /**
+     * Whether the amount has been added to the purchase totals.
+     */
+    private boolean aggregated;
+
+    /**
+     * Gets the ID of the line.
+     *
+     * @return The ID of the line.
+     */
+    public Integer getLine_id() {
+        return line_id;
+    }
+
+    /**
+     * Sets the ID of the line.
+     *
+     * @param line_id The ID of the line.
+     */
+    public void setLine_id(Integer line_id) {
+        this.line_id = line_id;
+    }
+
+    /**
+     * Gets the order the line belongs to.
+     *
+     * @return The order.
+     */
+    public PurchaseOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Sets the order the line belongs to.
+     *
+     * @param order The order.
+     */
+    public void setOrder(PurchaseOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Gets the ID of the product bought.
+     *
+     * @return The ID of the product.
+     */
+    public Integer getProductId() {
+        return productId;
+    }
+
+    /**
+     * Sets the ID of the product bought.
+     *
+     * @param productId The ID of the product.
+     */
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    /**
+     * Gets the quantity bought.
+     *
+     * @return The quantity bought.
+     */
+    public Integer getAmount() {
+        return amount;
+    }
+
+    /**
+     * Sets the quantity bought.
+     *
+     * @param amount The quantity bought.
+     */
+    public void setAmount(Integer amount) {
+        this.amount = amount;
+    }
+
+    /**
+     * Gets whether the amount has been added to the purchase totals.
+     *
+     * @return True once the line is aggregated.
+     */
+    public boolean isAggregated() {
+        return aggregated;
+    }
+
+    /**
+     * Sets whether the amount has been added to the purchase totals.
+     *
+     * @param aggregated True once the line is aggregated.
+     */
+    public void setAggregated(boolean aggregated) {
+        this.aggregated = aggregated;
+    }
+
+    /**
+     * Computes the hash code for this object based on its identifier.
+     *
+     * @return The hash code value for this object.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(line_id);
+    }
+
+    /**
+     * Checks if this object is equal to another object.
+     *
+     * @param obj The object to compare with.
+     * @return True if both lines have the same ID; otherwise, false.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof OrderLine)) {
+            return false;
+        }
+        OrderLine other = (OrderLine) obj;
+        return line_id != null && line_id.equals(other.line_id);
+    }
+
+    /**
+     * Returns a string representation of the line.
+     *
+     * @return A string representation of the line.
+     */
+    @Override
+    public String toString() {
+        return "entities.OrderLine[ line_id=" + line_id + " ]";
+    }
+}
@@ -45,15 +45,15 @@ import javax.xml.bind.annotation.XmlTransient;
    @NamedQuery(name = "selectAllProducts",
             query = "SELECT p FROM Product p ORDER BY p.product_id ASC")
     ,
+   @NamedQuery(name = "selectAllProductSummaries",
+            query = Product.SUMMARY_SELECT + " ORDER BY p.product_id ASC")
+    ,
+   @NamedQuery(name = "selectProductSummaryById",
+            query = Product.SUMMARY_SELECT + " WHERE p.product_id = :product_id")
+    ,
     @NamedQuery(name = "selectProductById",
             query = "SELECT p FROM Product p WHERE p.product_id = :product_id")
     , 
-    @NamedQuery(name = "selectProductWithTagId",
-            query = "SELECT p.id FROM Product p WHERE p.tag.id = :tag_id")
-    ,
-    @NamedQuery(name = "selectProductWithSupplierId",
-            query = "SELECT p.id FROM Product p WHERE p.supplier.id = :supplier_id")
-    ,
     @NamedQuery(name = "deleteProductByTagId",
             query = "DELETE FROM Product p WHERE p.tag.id = :tag_id")
     , 
@@ -62,11 +62,23 @@ import javax.xml.bind.annotation.XmlTransient;
 })
 public class Product implements Serializable {
 
+    /**
+     * Select clause shared by the queries building {@link ProductSummary}
+     * objects. Supplier and tag are outer joined column by column so that no
+     * entity, and therefore no purchase, is loaded.
+     */
+    static final String SUMMARY_SELECT = "SELECT NEW entities.ProductSummary("
+            + "p.product_id, p.productNumber, p.brand, p.model, p.otherInfo, p.weight, "
+            + "p.description, p.price, p.createTimestamp, "
+            + "s.supplier_id, s.name, s.phone, s.country, s.zip, s.createTimestamp, "
+            + "t.tag_id, t.type, t.label, t.active, t.createTimestamp) "
+            + "FROM Product p LEFT JOIN p.supplier s LEFT JOIN p.tag t";
+
     /**
      * Unique identifier for the product.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "product_id")
     private Integer product_id;
 
     /**
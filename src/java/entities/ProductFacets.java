@@ -0,0 +1,108 @@
+package entities;
+
+import java.io.Serializable;
+import java.util.List;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Products matching a tag, supplier and price filter, together with the
+ * number of products of every tag and supplier, counted with every filter
+ * applied but the one on the facet itself.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement
+public class ProductFacets implements Serializable {
+
+    /**
+     * Number of matching products, across every page.
+     */
+    private int total;
+
+    /**
+     * Matching products of the requested page.
+     */
+    private List<ProductSummary> products;
+
+    /**
+     * Product counts by tag.
+     */
+    private List<FacetCount> tags;
+
+    /**
+     * Product counts by supplier.
+     */
+    private List<FacetCount> suppliers;
+
+    /**
+     * Gets the number of matching products.
+     *
+     * @return the total
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Sets the number of matching products.
+     *
+     * @param total the total to set
+     */
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    /**
+     * Gets the matching products.
+     *
+     * @return the products
+     */
+    public List<ProductSummary> getProducts() {
+        return products;
+    }
+
+    /**
+     * Sets the matching products.
+     *
+     * @param products the products to set
+     */
+    public void setProducts(List<ProductSummary> products) {
+        this.products = products;
+    }
+
+    /**
+     * Gets the product counts by tag.
+     *
+     * @return the tag counts
+     */
+    public List<FacetCount> getTags() {
+        return tags;
+    }
+
+    /**
+     * Sets the product counts by tag.
+     *
+     * @param tags the tag counts to set
+     */
+    public void setTags(List<FacetCount> tags) {
+        this.tags = tags;
+    }
+
+    /**
+     * Gets the product counts by supplier.
+     *
+     * @return the supplier counts
+     */
+    public List<FacetCount> getSuppliers() {
+        return suppliers;
+    }
+
+    /**
+     * Sets the product counts by supplier.
+     *
+     * @param suppliers the supplier counts to set
+     */
+    public void setSuppliers(List<FacetCount> suppliers) {
+        this.suppliers = suppliers;
+    }
+}
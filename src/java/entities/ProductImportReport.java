@@ -0,0 +1,108 @@
+package entities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Outcome of a bulk product import: how many rows were read, imported and
+ * rejected, and why each rejected row was rejected.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement
+public class ProductImportReport implements Serializable {
+
+    /**
+     * Number of rows read from the input.
+     */
+    private int rowsRead;
+
+    /**
+     * Number of products inserted.
+     */
+    private int rowsImported;
+
+    /**
+     * Number of rows rejected.
+     */
+    private int rowsRejected;
+
+    /**
+     * Rejected rows, up to a maximum; {@link #rowsRejected} counts them all.
+     */
+    private List<ImportRowError> errors = new ArrayList<>();
+
+    /**
+     * Gets the number of rows read from the input.
+     *
+     * @return the number of rows read
+     */
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Sets the number of rows read from the input.
+     *
+     * @param rowsRead the number of rows read to set
+     */
+    public void setRowsRead(int rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    /**
+     * Gets the number of products inserted.
+     *
+     * @return the number of rows imported
+     */
+    public int getRowsImported() {
+        return rowsImported;
+    }
+
+    /**
+     * Sets the number of products inserted.
+     *
+     * @param rowsImported the number of rows imported to set
+     */
+    public void setRowsImported(int rowsImported) {
+        this.rowsImported = rowsImported;
+    }
+
+    /**
+     * Gets the number of rows rejected.
+     *
+     * @return the number of rows rejected
+     */
+    public int getRowsRejected() {
+        return rowsRejected;
+    }
+
+    /**
+     * Sets the number of rows rejected.
+     *
+     * @param rowsRejected the number of rows rejected to set
+     */
+    public void setRowsRejected(int rowsRejected) {
+        this.rowsRejected = rowsRejected;
+    }
+
+    /**
+     * Gets the rejected rows.
+     *
+     * @return the errors
+     */
+    public List<ImportRowError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Sets the rejected rows.
+     *
+     * @param errors the errors to set
+     */
+    public void setErrors(List<ImportRowError> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,348 @@
+package entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.Serializable;
+import java.util.Date;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Read-only view of a product used by the catalog endpoints. It carries the
+ * same data a {@link Product} is serialized with, including a shallow copy of
+ * its {@link Supplier} and {@link Tag}, but it is built from a JPQL constructor
+ * expression so reading it never loads the purchases of the product.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement(name = "product")
+public class ProductSummary implements Serializable {
+
+    /**
+     * Unique identifier for the product.
+     */
+    private Integer product_id;
+
+    /**
+     * Unique product number associated with the product.
+     */
+    private String productNumber;
+
+    /**
+     * Brand of the product.
+     */
+    private String brand;
+
+    /**
+     * Model of the product.
+     */
+    private String model;
+
+    /**
+     * Additional information about the product.
+     */
+    private String otherInfo;
+
+    /**
+     * Weight of the product.
+     */
+    private Float weight;
+
+    /**
+     * Description of the product.
+     */
+    private String description;
+
+    /**
+     * Price of the product.
+     */
+    private Double price;
+
+    /**
+     * Supplier of the product, without its products.
+     */
+    private Supplier supplier;
+
+    /**
+     * Tag of the product, without its products.
+     */
+    private Tag tag;
+
+    /**
+     * Timestamp indicating when the product was created.
+     */
+    @JsonSerialize(as = Date.class)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private Date createTimestamp;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public ProductSummary() {
+    }
+
+    /**
+     * Builds a summary from the columns selected by the product summary named
+     * queries. Supplier and tag columns are null when the product has none.
+     *
+     * @param product_id the product ID
+     * @param productNumber the product number
+     * @param brand the brand of the product
+     * @param model the model of the product
+     * @param otherInfo additional information about the product
+     * @param weight the weight of the product
+     * @param description the description of the product
+     * @param price the price of the product
+     * @param createTimestamp the creation timestamp of the product
+     * @param supplierId the supplier ID
+     * @param supplierName the name of the supplier
+     * @param supplierPhone the phone number of the supplier
+     * @param supplierCountry the country of the supplier
+     * @param supplierZip the ZIP code of the supplier
+     * @param supplierCreateTimestamp the creation timestamp of the supplier
+     * @param tagId the tag ID
+     * @param tagType the type of the tag
+     * @param tagLabel the label of the tag
+     * @param tagActive the active status of the tag
+     * @param tagCreateTimestamp the creation timestamp of the tag
+     */
+    public ProductSummary(Integer product_id, String productNumber, String brand, String model,
+            String otherInfo, Float weight, String description, Double price, Date createTimestamp,
+            Integer supplierId, String supplierName, String supplierPhone, String supplierCountry,
+            Integer supplierZip, Date supplierCreateTimestamp,
+            Integer tagId, String tagType, String tagLabel, Boolean tagActive, Date tagCreateTimestamp) {
+        this.product_id = product_id;
+        this.productNumber = productNumber;
+        this.brand = brand;
+        this.model = model;
+        this.otherInfo = otherInfo;
+        this.weight = weight;
+        this.description = description;
+        this.price = price;
+        this.createTimestamp = createTimestamp;
+        if (supplierId != null) {
+            supplier = new Supplier();
+            supplier.setSupplier_id(supplierId);
+            supplier.setName(supplierName);
+            supplier.setPhone(supplierPhone);
+            supplier.setCountry(supplierCountry);
+            supplier.setZip(supplierZip);
+            supplier.setCreateTimestamp(supplierCreateTimestamp);
+        }
+        if (tagId != null) {
+            tag = new Tag();
+            tag.setTag_id(tagId);
+            tag.setType(tagType);
+            tag.setLabel(tagLabel);
+            tag.setActive(tagActive);
+            tag.setCreateTimestamp(tagCreateTimestamp);
+        }
+    }
+
+    /**
+     * Gets the product ID.
+     *
+     * @return the product ID
+     */
+    public Integer getProduct_id() {
+        return product_id;
+    }
+
+    /**
+     * Sets the product ID.
+     *
+     * @param product_id the product ID to set
+     */
+    public void setProduct_id(Integer product_id) {
+        this.product_id = product_id;
+    }
+
+    /**
+     * Gets the product number.
+     *
+     * @return the product number
+     */
+    public String getProductNumber() {
+        return productNumber;
+    }
+
+    /**
+     * Sets the product number.
+     *
+     * @param productNumber the product number to set
+     */
+    public void setProductNumber(String productNumber) {
+        this.productNumber = productNumber;
+    }
+
+    /**
+     * Gets the brand of the product.
+     *
+     * @return the brand of the product
+     */
+    public String getBrand() {
+        return brand;
+    }
+
+    /**
+     * Sets the brand of the product.
+     *
+     * @param brand the brand to set
+     */
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    /**
+     * Gets the model of the product.
+     *
+     * @return the model of the product
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * Sets the model of the product.
+     *
+     * @param model the model to set
+     */
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    /**
+     * Gets additional information about the product.
+     *
+     * @return additional information about the product
+     */
+    public String getOtherInfo() {
+        return otherInfo;
+    }
+
+    /**
+     * Sets additional information about the product.
+     *
+     * @param otherInfo additional information to set
+     */
+    public void setOtherInfo(String otherInfo) {
+        this.otherInfo = otherInfo;
+    }
+
+    /**
+     * Gets the weight of the product.
+     *
+     * @return the weight of the product
+     */
+    public Float getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the weight of the product.
+     *
+     * @param weight the weight to set
+     */
+    public void setWeight(Float weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Gets the description of the product.
+     *
+     * @return the description of the product
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Sets the description of the product.
+     *
+     * @param description the description to set
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Gets the price of the product.
+     *
+     * @return the price of the product
+     */
+    public Double getPrice() {
+        return price;
+    }
+
+    /**
+     * Sets the price of the product.
+     *
+     * @param price the price to set
+     */
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    /**
+     * Gets the creation timestamp of the product.
+     *
+     * @return the creation timestamp of the product
+     */
+    public Date getCreateTimestamp() {
+        return createTimestamp;
+    }
+
+    /**
+     * Sets the creation timestamp of the product.
+     *
+     * @param createTimestamp the creation timestamp to set
+     */
+    public void setCreateTimestamp(Date createTimestamp) {
+        this.createTimestamp = createTimestamp;
+    }
+
+    /**
+     * Gets the supplier of the product.
+     *
+     * @return the supplier of the product
+     */
+    public Supplier getSupplier() {
+        return supplier;
+    }
+
+    /**
+     * Sets the supplier of the product.
+     *
+     * @param supplier the supplier to set
+     */
+    public void setSupplier(Supplier supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * Gets the tag associated with the product.
+     *
+     * @return the tag associated with the product
+     */
+    public Tag getTag() {
+        return tag;
+    }
+
+    /**
+     * Sets the tag associated with the product.
+     *
+     * @param tag the tag to set
+     */
+    public void setTag(Tag tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Returns a string representation of the product summary.
+     *
+     * @return a string representation of the product summary
+     */
+    @Override
+    public String toString() {
+        return "ProductSummary [product_id=" + product_id + ", brand=" + brand + ", model=" + model + "]";
+    }
+}
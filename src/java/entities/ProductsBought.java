@@ -35,17 +35,46 @@ import javax.xml.bind.annotation.XmlTransient;
     ,
     @NamedQuery(name = "getProductsBought",
             query = "SELECT pb FROM ProductsBought pb WHERE pb.customer.id = :customerId")
+    ,
+    @NamedQuery(name = "selectPurchaseHistory",
+            query = ProductsBought.HISTORY_SELECT + " WHERE pb.id.customerId = :customerId "
+            + "AND pb.boughtTimestamp IS NOT NULL"
+            + ProductsBought.HISTORY_ORDER)
+    ,
+    @NamedQuery(name = "selectPurchaseHistoryBefore",
+            query = ProductsBought.HISTORY_SELECT + " WHERE pb.id.customerId = :customerId "
+            + "AND (pb.boughtTimestamp < :boughtTimestamp "
+            + "OR (pb.boughtTimestamp = :boughtTimestamp AND pb.id.productId < :productId))"
+            + ProductsBought.HISTORY_ORDER)
     ,     
     @NamedQuery(name = "deleteByProductId",
             query = "DELETE FROM ProductsBought pb WHERE pb.product.id = :product_id")
     ,
     @NamedQuery(name = "deleteByCustomerId",
             query = "DELETE FROM ProductsBought pb WHERE pb.customer.id = :customer_id")
+    ,
+    @NamedQuery(name = "deleteByTagId",
+            query = "DELETE FROM ProductsBought pb WHERE pb.id.productId IN "
+            + "(SELECT p.product_id FROM Product p WHERE p.tag.id = :tag_id)")
+    ,
+    @NamedQuery(name = "deleteBySupplierId",
+            query = "DELETE FROM ProductsBought pb WHERE pb.id.productId IN "
+            + "(SELECT p.product_id FROM Product p WHERE p.supplier.id = :supplier_id)")
 
 })
 
 public class ProductsBought implements Serializable {
 
+    // Purchase history projection: scalar columns only, so no entity is loaded.
+    // Rows without a purchase time cannot be placed on the keyset, so the
+    // history leaves them out; the ledger always sets the time.
+    static final String HISTORY_SELECT = "SELECT NEW entities.PurchaseHistoryEntry("
+            + "pb.id.productId, p.brand, p.model, pb.amount, pb.boughtTimestamp) "
+            + "FROM ProductsBought pb JOIN pb.product p";
+
+    // Newest first; the product ID breaks ties so pages never overlap
+    static final String HISTORY_ORDER = " ORDER BY pb.boughtTimestamp DESC, pb.id.productId DESC";
+
     // The amount of products bought
     private Integer amount;
 
@@ -0,0 +1,99 @@
+package entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.Serializable;
+import java.util.Date;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Line of the purchase history of a customer: the product bought, how many
+ * and when. It is read with a constructor expression, so no
+ * {@link ProductsBought}, {@link Customer} nor {@link Product} entity is
+ * loaded.
+ *
+ * @author Alex Irusta
+ */
+@XmlRootElement
+public class PurchaseHistoryEntry implements Serializable {
+
+    // The ID of the product bought
+    private Integer productId;
+
+    // The brand of the product bought
+    private String brand;
+
+    // The model of the product bought
+    private String model;
+
+    // The amount of products bought
+    private Integer amount;
+
+    // The timestamp indicating when the products were bought
+    @JsonSerialize(as = Date.class)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private Date boughtTimestamp;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public PurchaseHistoryEntry() {
+    }
+
+    /**
+     * Creates a history entry.
+     *
+     * @param productId The ID of the product bought.
+     * @param brand The brand of the product bought.
+     * @param model The model of the product bought.
+     * @param amount The amount of products bought.
+     * @param boughtTimestamp When the products were bought.
+     */
+    public PurchaseHistoryEntry(Integer productId, String brand, String model, Integer amount, Date boughtTimestamp) {
+        this.productId = productId;
+        this.brand = brand;
+        this.model = model;
+        this.amount = amount;
+        this.boughtTimestamp = boughtTimestamp;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public Integer getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Integer amount) {
+        this.amount = amount;
+    }
+
+    public Date getBoughtTimestamp() {
+        return boughtTimestamp;
+    }
+
+    public void setBoughtTimestamp(Date boughtTimestamp) {
+        this.boughtTimestamp = boughtTimestamp;
+    }
+}
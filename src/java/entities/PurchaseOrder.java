@@ -0,0 +1,181 @@
+package entities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Entity representing an order of the purchase ledger. Orders and their
+ * {@link OrderLine} lines are only ever inserted, one order per checkout, so
+ * repeat purchases never update a shared row. The {@link ProductsBought}
+ * totals are folded from the lines afterwards.
+ *
+ * @author Alexander Epelde
+ */
+@Entity
+@Table(name = "purchase_order", schema = "our_shop")
+public class PurchaseOrder implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Identification field for the order.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_id")
+    @Column(name = "order_id")
+    private Integer order_id;
+
+    /**
+     * ID of the customer placing the order.
+     */
+    @NotNull
+    private Integer customerId;
+
+    /**
+     * Time the order was placed.
+     */
+    @NotNull
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createTimestamp;
+
+    /**
+     * Lines of the order, inserted along with it.
+     */
+    @OneToMany(mappedBy = "order", cascade = CascadeType.PERSIST)
+    private List<OrderLine> lines = new ArrayList<>();
+
+    /**
+     * Gets the ID of the order.
+     *
+     * @return The ID of the order.
+     */
+    public Integer getOrder_id() {
+        return order_id;
+    }
+
+    /**
+     * Sets the ID of the order.
+     *
+     * @param order_id The ID of the order.
+     */
+    public void setOrder_id(Integer order_id) {
+        this.order_id = order_id;
+    }
+
+    /**
+     * Gets the ID of the customer placing the order.
+     *
+     * @return The ID of the customer.
+     */
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * Sets the ID of the customer placing the order.
+     *
+     * @param customerId The ID of the customer.
+     */
+    public void setCustomerId(Integer customerId) {
+        this.customerId = customerId;
+    }
+
+    /**
+     * Gets the time the order was placed.
+     *
+     * @return The time the order was placed.
+     */
+    public Date getCreateTimestamp() {
+        return createTimestamp;
+    }
+
+    /**
+     * Sets the time the order was placed.
+     *
+     * @param createTimestamp The time the order was placed.
+     */
+    public void setCreateTimestamp(Date createTimestamp) {
+        this.createTimestamp = createTimestamp;
+    }
+
+    /**
+     * Gets the lines of the order.
+     *
+     * @return The lines of the order.
+     */
+    public List<OrderLine> getLines() {
+        return lines;
+    }
+
+    /**
+     * Sets the lines of the order.
+     *
+     * @param lines The lines of the order.
+     */
+    public void setLines(List<OrderLine> lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * Adds a line to the order.
+     *
+     * @param productId The ID of the product bought.
+     * @param amount The quantity bought.
+     */
+    public void addLine(Integer productId, Integer amount) {
+        OrderLine line = new OrderLine();
+        line.setOrder(this);
+        line.setProductId(productId);
+        line.setAmount(amount);
+        lines.add(line);
+    }
+
+    /**
+     * Computes the hash code for this object based on its identifier.
+     *
+     * @return The hash code value for this object.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(order_id);
+    }
+
+    /**
+     * Checks if this object is equal to another object.
+     *
+     * @param obj The object to compare with.
+     * @return True if both orders have the same ID; otherwise, false.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof PurchaseOrder)) {
+            return false;
+        }
+        PurchaseOrder other = (PurchaseOrder) obj;
+        return order_id != null && order_id.equals(other.order_id);
+    }
+
+    /**
+     * Returns a string representation of the order.
+     *
+     * @return A string representation of the order.
+     */
+    @Override
+    public String toString() {
+        return "entities.PurchaseOrder[ order_id=" + order_id + " ]";
+    }
+}
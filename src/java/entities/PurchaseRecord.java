@@ -0,0 +1,123 @@
+package entities;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Flat, read-only view of a purchase with the customer and product data
+ * needed by accounting, read straight from the columns of the tables instead
+ * of loading the {@link ProductsBought} entity and its associations.
+ *
+ * @author Alex Irusta
+ */
+public class PurchaseRecord implements Serializable {
+
+    private final Integer customerId;
+    private final String customerName;
+    private final String customerEmail;
+    private final Integer productId;
+    private final String productNumber;
+    private final String brand;
+    private final String model;
+    private final Double price;
+    private final Integer amount;
+    private final Date boughtTimestamp;
+
+    /**
+     * Creates a purchase record.
+     *
+     * @param customerId The ID of the customer.
+     * @param customerName The full name of the customer.
+     * @param customerEmail The email address of the customer.
+     * @param productId The ID of the product.
+     * @param productNumber The product number.
+     * @param brand The brand of the product.
+     * @param model The model of the product.
+     * @param price The current price of the product.
+     * @param amount The amount bought.
+     * @param boughtTimestamp When the product was last bought.
+     */
+    public PurchaseRecord(Integer customerId, String customerName, String customerEmail, Integer productId,
+            String productNumber, String brand, String model, Double price, Integer amount, Date boughtTimestamp) {
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.productId = productId;
+        this.productNumber = productNumber;
+        this.brand = brand;
+        this.model = model;
+        this.price = price;
+        this.amount = amount;
+        this.boughtTimestamp = boughtTimestamp;
+    }
+
+    /**
+     * @return The ID of the customer.
+     */
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    /**
+     * @return The full name of the customer.
+     */
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    /**
+     * @return The email address of the customer.
+     */
+    public String getCustomerEmail() {
+        return customerEmail;
+    }
+
+    /**
+     * @return The ID of the product.
+     */
+    public Integer getProductId() {
+        return productId;
+    }
+
+    /**
+     * @return The product number.
+     */
+    public String getProductNumber() {
+        return productNumber;
+    }
+
+    /**
+     * @return The brand of the product.
+     */
+    public String getBrand() {
+        return brand;
+    }
+
+    /**
+     * @return The model of the product.
+     */
+    public String getModel() {
+        return model;
+    }
+
+    /**
+     * @return The current price of the product.
+     */
+    public Double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return The amount bought.
+     */
+    public Integer getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return When the product was last bought.
+     */
+    public Date getBoughtTimestamp() {
+        return boughtTimestamp;
+    }
+}
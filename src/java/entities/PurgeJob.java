@@ -0,0 +1,339 @@
+package entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Status of a background purge of a tag or a supplier. A purge deletes the
+ * purchases of the owner's products, the products and finally the owner, in
+ * bounded chunks. The job is updated by the worker thread while it is being
+ * read by the status resource, so its mutable fields are volatile.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement
+public class PurgeJob implements Serializable {
+
+    /**
+     * Kind of owner being purged, together with the column of the product
+     * table that references it.
+     */
+    public enum OwnerType {
+        TAG("tag_id"),
+        SUPPLIER("supplier_id");
+
+        private final String productColumn;
+
+        OwnerType(String productColumn) {
+            this.productColumn = productColumn;
+        }
+
+        /**
+         * Gets the column of the product table referencing this owner.
+         *
+         * @return the column name
+         */
+        public String getProductColumn() {
+            return productColumn;
+        }
+    }
+
+    /**
+     * Lifecycle of a purge job.
+     */
+    public enum State {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * Identifier of the job.
+     */
+    private String id;
+
+    /**
+     * Kind of owner being purged.
+     */
+    private OwnerType ownerType;
+
+    /**
+     * ID of the tag or supplier being purged.
+     */
+    private Integer ownerId;
+
+    /**
+     * Current state of the job.
+     */
+    private volatile State state;
+
+    /**
+     * Number of rows to delete, counted when the job starts.
+     */
+    private volatile long totalRows;
+
+    /**
+     * Number of rows deleted so far.
+     */
+    private volatile long rowsDeleted;
+
+    /**
+     * Message of the error that made the job fail, if any.
+     */
+    private volatile String error;
+
+    /**
+     * Timestamp indicating when the job started deleting.
+     */
+    @JsonSerialize(as = Date.class)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private volatile Date startTimestamp;
+
+    /**
+     * Timestamp indicating when the job finished, successfully or not.
+     */
+    @JsonSerialize(as = Date.class)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    private volatile Date endTimestamp;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public PurgeJob() {
+    }
+
+    /**
+     * Creates a pending job for the given owner.
+     *
+     * @param ownerType the kind of owner to purge
+     * @param ownerId the ID of the owner to purge
+     */
+    public PurgeJob(OwnerType ownerType, Integer ownerId) {
+        this.id = UUID.randomUUID().toString();
+        this.ownerType = ownerType;
+        this.ownerId = ownerId;
+        this.state = State.PENDING;
+    }
+
+    /**
+     * Gets the job ID.
+     *
+     * @return the job ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the job ID.
+     *
+     * @param id the job ID to set
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the kind of owner being purged.
+     *
+     * @return the owner type
+     */
+    public OwnerType getOwnerType() {
+        return ownerType;
+    }
+
+    /**
+     * Sets the kind of owner being purged.
+     *
+     * @param ownerType the owner type to set
+     */
+    public void setOwnerType(OwnerType ownerType) {
+        this.ownerType = ownerType;
+    }
+
+    /**
+     * Gets the ID of the owner being purged.
+     *
+     * @return the owner ID
+     */
+    public Integer getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * Sets the ID of the owner being purged.
+     *
+     * @param ownerId the owner ID to set
+     */
+    public void setOwnerId(Integer ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * Gets the state of the job.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Sets the state of the job.
+     *
+     * @param state the state to set
+     */
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    /**
+     * Gets the number of rows to delete.
+     *
+     * @return the total number of rows
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Sets the number of rows to delete.
+     *
+     * @param totalRows the total number of rows to set
+     */
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    /**
+     * Gets the number of rows deleted so far.
+     *
+     * @return the number of deleted rows
+     */
+    public long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    /**
+     * Sets the number of rows deleted so far.
+     *
+     * @param rowsDeleted the number of deleted rows to set
+     */
+    public void setRowsDeleted(long rowsDeleted) {
+        this.rowsDeleted = rowsDeleted;
+    }
+
+    /**
+     * Gets the message of the error that made the job fail.
+     *
+     * @return the error message, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Sets the message of the error that made the job fail.
+     *
+     * @param error the error message to set
+     */
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * Gets the timestamp of when the job started deleting.
+     *
+     * @return the start timestamp
+     */
+    public Date getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    /**
+     * Sets the timestamp of when the job started deleting.
+     *
+     * @param startTimestamp the start timestamp to set
+     */
+    public void setStartTimestamp(Date startTimestamp) {
+        this.startTimestamp = startTimestamp;
+    }
+
+    /**
+     * Gets the timestamp of when the job finished.
+     *
+     * @return the end timestamp, or null while the job is running
+     */
+    public Date getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    /**
+     * Sets the timestamp of when the job finished.
+     *
+     * @param endTimestamp the end timestamp to set
+     */
+    public void setEndTimestamp(Date endTimestamp) {
+        this.endTimestamp = endTimestamp;
+    }
+
+    /**
+     * Adds a deleted chunk to the progress of the job. Only the worker thread
+     * running the job calls this method.
+     *
+     * @param rows the number of rows deleted by the chunk
+     */
+    public void addRowsDeleted(int rows) {
+        rowsDeleted += rows;
+    }
+
+    /**
+     * Gets the average deletion rate since the job started.
+     *
+     * @return the deleted rows per second
+     */
+    @XmlElement
+    public double getRowsPerSecond() {
+        Date start = startTimestamp;
+        if (start == null) {
+            return 0;
+        }
+        Date end = endTimestamp;
+        long elapsed = (end == null ? System.currentTimeMillis() : end.getTime()) - start.getTime();
+        return elapsed <= 0 ? 0 : rowsDeleted * 1000.0 / elapsed;
+    }
+
+    /**
+     * Gets the estimated number of seconds until the job finishes, based on
+     * the average deletion rate.
+     *
+     * @return the estimated seconds left, or null if it cannot be estimated
+     */
+    @XmlElement
+    public Long getEtaSeconds() {
+        if (state == State.COMPLETED) {
+            return 0L;
+        }
+        double rate = getRowsPerSecond();
+        if (state != State.RUNNING || rate <= 0) {
+            return null;
+        }
+        return (long) Math.ceil(Math.max(0, totalRows - rowsDeleted) / rate);
+    }
+
+    /**
+     * Obtain a string representation of the PurgeJob.
+     *
+     * @return The String representing the PurgeJob.
+     */
+    @Override
+    public String toString() {
+        return "PurgeJob [id=" + id + ", ownerType=" + ownerType + ", ownerId=" + ownerId + ", state=" + state + "]";
+    }
+}
@@ -0,0 +1,101 @@
+package entities;
+
+import java.io.Serializable;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Type-ahead completion of a product brand, product model or supplier name.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement
+public class Suggestion implements Serializable {
+
+    /**
+     * Completed text, as written in the catalog.
+     */
+    private String text;
+
+    /**
+     * Field the text comes from.
+     */
+    private SuggestionField field;
+
+    /**
+     * Number of products with this text, used to rank the suggestions.
+     */
+    private int weight;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public Suggestion() {
+    }
+
+    /**
+     * Creates a suggestion.
+     *
+     * @param text the completed text
+     * @param field the field the text comes from
+     * @param weight the number of products with this text
+     */
+    public Suggestion(String text, SuggestionField field, int weight) {
+        this.text = text;
+        this.field = field;
+        this.weight = weight;
+    }
+
+    /**
+     * Gets the completed text.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Sets the completed text.
+     *
+     * @param text the text to set
+     */
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Gets the field the text comes from.
+     *
+     * @return the field
+     */
+    public SuggestionField getField() {
+        return field;
+    }
+
+    /**
+     * Sets the field the text comes from.
+     *
+     * @param field the field to set
+     */
+    public void setField(SuggestionField field) {
+        this.field = field;
+    }
+
+    /**
+     * Gets the number of products with this text.
+     *
+     * @return the weight
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the number of products with this text.
+     *
+     * @param weight the weight to set
+     */
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+}
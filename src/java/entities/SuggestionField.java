@@ -0,0 +1,12 @@
+package entities;
+
+/**
+ * Field of the catalog a type-ahead suggestion comes from.
+ *
+ * @author Alexander Epelde
+ */
+public enum SuggestionField {
+    BRAND,
+    MODEL,
+    SUPPLIER
+}
@@ -6,21 +6,25 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.Set;
 import static javax.persistence.CascadeType.ALL;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
-import static javax.persistence.FetchType.EAGER;
+import static javax.persistence.FetchType.LAZY;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.validation.constraints.NotNull;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entity representing suppliers. It contains fields such as supplier ID, name,
@@ -31,6 +35,8 @@ import javax.xml.bind.annotation.XmlTransient;
  * @author Alexander Epelde
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "supplier", schema = "our_shop")
 @XmlRootElement
 @NamedQueries({
@@ -41,10 +47,12 @@ import javax.xml.bind.annotation.XmlTransient;
             query = "DELETE FROM Supplier s WHERE s.supplier_id = :supplierId")
     ,
     @NamedQuery(name = "selectAllSuppliers",
-            query = "SELECT s FROM Supplier s ORDER BY s.supplier_id ASC")
+            query = "SELECT s FROM Supplier s ORDER BY s.supplier_id ASC",
+            hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
     ,
     @NamedQuery(name = "selectSupplierById",
-            query = "SELECT s FROM Supplier s WHERE s.supplier_id = :supplierId")
+            query = "SELECT s FROM Supplier s WHERE s.supplier_id = :supplierId",
+            hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 })
 
 public class Supplier implements Serializable {
@@ -53,7 +61,7 @@ public class Supplier implements Serializable {
      * Identification field for the supplier.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "supplier_id")
     @Column(name = "supplier_id")
     private Integer supplier_id;
 
@@ -78,7 +86,7 @@ public class Supplier implements Serializable {
      */
     private Integer zip;
 
-    @OneToMany(mappedBy = "supplier", cascade = ALL, fetch = EAGER)
+    @OneToMany(mappedBy = "supplier", cascade = ALL, fetch = LAZY)
     private Set<Product> products;
 
     /**
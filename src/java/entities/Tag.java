@@ -6,21 +6,25 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.Set;
 import static javax.persistence.CascadeType.ALL;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
-import static javax.persistence.FetchType.EAGER;
+import static javax.persistence.FetchType.LAZY;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.validation.constraints.NotNull;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entity representing tags used to specify proctct types It contains fields
@@ -29,6 +33,8 @@ import javax.xml.bind.annotation.XmlTransient;
  * @author Alexander Epelde
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "tag", schema = "our_shop")
 @XmlRootElement
 @NamedQueries({
@@ -39,10 +45,12 @@ import javax.xml.bind.annotation.XmlTransient;
             query = "DELETE FROM Tag t WHERE t.tag_id = :tagId")
     ,
     @NamedQuery(name = "selectAllTags",
-            query = "SELECT t FROM Tag t ORDER BY t.tag_id ASC")
+            query = "SELECT t FROM Tag t ORDER BY t.tag_id ASC",
+            hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
     ,
     @NamedQuery(name = "selectTagById",
-            query = "SELECT t FROM Tag t WHERE t.tag_id = :tagId")
+            query = "SELECT t FROM Tag t WHERE t.tag_id = :tagId",
+            hints = @QueryHint(name = "org.hibernate.cacheable", value = "true"))
 })
 
 public class Tag implements Serializable {
@@ -51,7 +59,7 @@ public class Tag implements Serializable {
      * Identification field for the tag.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "tag_id")
     @Column(name = "tag_id")
     private Integer tag_id;
 
@@ -81,7 +89,7 @@ public class Tag implements Serializable {
     /**
      * Collection of products with that tag
      */
-    @OneToMany(mappedBy = "tag", cascade = ALL, fetch = EAGER)
+    @OneToMany(mappedBy = "tag", cascade = ALL, fetch = LAZY)
     private Set<Product> products;
 
     /**
@@ -10,6 +10,8 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
+import javax.persistence.NamedNativeQueries;
+import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
@@ -28,22 +30,6 @@ import javax.validation.constraints.NotNull;
 @Table(name = "user", schema = "our_shop")
 @Inheritance(strategy = InheritanceType.JOINED)
 @NamedQueries({
-    @NamedQuery(
-            name = "findUserById",
-            query = "SELECT u FROM User u WHERE u.id = :id")
-    ,
-    @NamedQuery(
-            name = "findUserByUsername",
-            query = "SELECT u FROM User u WHERE u.username = :username")
-    ,
-    @NamedQuery(
-            name = "findUserByActive",
-            query = "SELECT u FROM User u WHERE u.active = :active")
-    ,
-    @NamedQuery(
-            name = "findAllUsers",
-            query = "SELECT u FROM User u")
-    ,
     @NamedQuery(
             name = "updatePassword",
             query = "UPDATE User u SET u.password = :password WHERE u.id = :id")
@@ -56,12 +42,49 @@ import javax.validation.constraints.NotNull;
             name = "removeUser",
             query = "DELETE FROM User u WHERE u.id = :id")
 })
+// Lookups reading the user table alone: no subclass table is joined and no
+// association of Customer is loaded. The summaries leave the password out.
+@NamedNativeQueries({
+    @NamedNativeQuery(
+            name = "findUserSummaries",
+            query = User.SUMMARY_SELECT + "ORDER BY id")
+    ,
+    @NamedNativeQuery(
+            name = "findUserSummariesAfter",
+            query = User.SUMMARY_SELECT + "WHERE id > ?1 ORDER BY id LIMIT ?2")
+    ,
+    @NamedNativeQuery(
+            name = "findUserSummariesByActive",
+            query = User.SUMMARY_SELECT + "WHERE active = ?1 ORDER BY id")
+    ,
+    @NamedNativeQuery(
+            name = "findPasswordById",
+            query = "SELECT password FROM our_shop.user WHERE id = ?1")
+    ,
+    @NamedNativeQuery(
+            name = "findUserRowById",
+            query = User.ROW_SELECT + "WHERE id = ?1")
+    ,
+    @NamedNativeQuery(
+            name = "findUserRowByUsername",
+            query = User.ROW_SELECT + "WHERE username = ?1")
+    ,
+    @NamedNativeQuery(
+            name = "signInCredentials",
+            query = User.ROW_SELECT + "WHERE username = ?1 AND password = ?2")
+})
 
 public class User implements Serializable, Cloneable {
 
+    // Columns of the user table, in the order UserManagerEJB reads them
+    static final String ROW_SELECT = "SELECT id, username, password, active, userType FROM our_shop.user ";
+
+    // Columns of the user table but the password, in the order UserManagerEJB reads them
+    static final String SUMMARY_SELECT = "SELECT id, username, active, userType FROM our_shop.user ";
+
     @Id
 
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
     protected Integer id;
     @NotNull
     private String username;
@@ -0,0 +1,141 @@
+package entities;
+
+import java.io.Serializable;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Public view of a {@link User} used by the user list endpoints. It carries
+ * the common user data without the password, and it is built from a
+ * projection that never selects the password column, so listing users
+ * involves no encryption.
+ *
+ * @author Alexander Epelde
+ */
+@XmlRootElement(name = "user")
+public class UserSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * ID of the user.
+     */
+    private Integer id;
+
+    /**
+     * Username of the user.
+     */
+    private String username;
+
+    /**
+     * Type of the user.
+     */
+    private UserType userType;
+
+    /**
+     * Whether the user is active.
+     */
+    private boolean active;
+
+    /**
+     * Empty constructor, needed for XML and JSON binding.
+     */
+    public UserSummary() {
+    }
+
+    /**
+     * Builds a summary from the columns of the user table.
+     *
+     * @param id the user ID
+     * @param username the username
+     * @param userType the user type
+     * @param active the active status of the user
+     */
+    public UserSummary(Integer id, String username, UserType userType, boolean active) {
+        this.id = id;
+        this.username = username;
+        this.userType = userType;
+        this.active = active;
+    }
+
+    /**
+     * Get the user ID.
+     *
+     * @return the user ID
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Set the user ID.
+     *
+     * @param id the user ID to be set
+     */
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the username.
+     *
+     * @return the username
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Set the username.
+     *
+     * @param username the username to be set
+     */
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Get the user type.
+     *
+     * @return the user type
+     */
+    public UserType getUserType() {
+        return userType;
+    }
+
+    /**
+     * Set the user type.
+     *
+     * @param userType the user type to be set
+     */
+    public void setUserType(UserType userType) {
+        this.userType = userType;
+    }
+
+    /**
+     * Check if the user is active.
+     *
+     * @return true if the user is active, false otherwise
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Set the user's active status.
+     *
+     * @param active true if the user is active, false otherwise
+     */
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    /**
+     * Obtain a string representation of the summary.
+     *
+     * @return The String representing the summary.
+     */
+    @Override
+    public String toString() {
+        return "entities.UserSummary[ id=" + id + " ]";
+    }
+}
@@ -1,6 +1,8 @@
 package rest;
 
+import encryption.TokenManager;
 import entities.Admin;
+import entities.UserType;
 import exceptions.CreateException;
 import exceptions.DeleteException;
 import exceptions.ReadException;
@@ -9,6 +11,7 @@ import exceptions.UpdateException;
 import javax.ejb.EJB;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import ejb.local.AdminManagerEJBLocal;
@@ -59,7 +62,9 @@ public class AdminREST {
 //    }
 
     /**
-     * Signs in an Admin using XML data.
+     * Signs in an Admin using XML data. The response carries an access token
+     * in its X-Auth-Token header, to be sent back as a Bearer token instead of
+     * the credentials.
      *
      * @param admin The Admin object containing the admin data for sign-in.
      * @return The signed-in Admin object.
@@ -70,10 +75,13 @@ public class AdminREST {
     @Path("signin")
     @Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public Admin signIn(Admin admin) {
+    public Response signIn(Admin admin) {
         try {
             LOGGER.info("AdminRESTful service: Signing in admin.");
-            return adminEjb.signIn(admin.getUsername(), admin.getPassword());
+            Admin signedIn = adminEjb.signIn(admin.getUsername(), admin.getPassword());
+            return Response.ok(signedIn)
+                    .header(TokenFilter.TOKEN_HEADER, TokenManager.getInstance().issue(signedIn.getId(), UserType.ADMIN))
+                    .build();
         } catch (ReadException ex) {
             LOGGER.log(Level.SEVERE, "AdminRESTful service: Exception signing in admin, {0}", ex.getMessage());
             throw new InternalServerErrorException(ex);
@@ -131,6 +139,7 @@ public class AdminREST {
         try {
             LOGGER.log(Level.INFO, "AdminRESTful service: Removing admin by id={0}.", id);
             adminEjb.removeAdmin(id);
+            TokenManager.getInstance().revokeUser(id);
         } catch (DeleteException ex) {
             LOGGER.log(Level.SEVERE, "AdminRESTful service: Exception removing admin, {0}", ex.getMessage());
             throw new InternalServerErrorException(ex);
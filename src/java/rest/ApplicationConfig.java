@@ -30,11 +30,14 @@ public class ApplicationConfig extends Application {
      */
     private void addRestResourceClasses(Set<Class<?>> resources) {
         resources.add(rest.AdminREST.class);
+        resources.add(rest.CacheREST.class);
         resources.add(rest.CustomerREST.class);
         resources.add(rest.ProductREST.class);
         resources.add(rest.ProductsBoughtREST.class);
+        resources.add(rest.PurgeREST.class);
         resources.add(rest.SupplierREST.class);
         resources.add(rest.TagREST.class);
+        resources.add(rest.TokenFilter.class);
         resources.add(rest.UserREST.class);
     }
 
@@ -0,0 +1,52 @@
+package rest;
+
+import ejb.local.CacheManagerEJBLocal;
+import entities.CacheStatistics;
+import exceptions.ReadException;
+import javax.ejb.EJB;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class reports the statistics of the second-level cache. It integrates
+ * with the {@link CacheManagerEJBLocal} EJB.
+ *
+ * @author Alexander Epelde
+ */
+@Path("cache")
+public class CacheREST {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("CacheREST");
+
+    /**
+     * EJB for inspecting the cache.
+     */
+    @EJB
+    private CacheManagerEJBLocal cacheEjb;
+
+    /**
+     * Retrieves the hit and miss counters of the second-level and query
+     * caches.
+     *
+     * @return The {@link CacheStatistics} object.
+     * @throws InternalServerErrorException If there is any Exception during
+     * processing.
+     */
+    @GET
+    @Path("statistics")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public CacheStatistics getStatistics() {
+        try {
+            LOGGER.log(Level.INFO, "CacheRESTful service: get cache statistics.");
+            return cacheEjb.getStatistics();
+        } catch (ReadException ex) {
+            LOGGER.log(Level.SEVERE, "CacheRESTful service: Exception reading cache statistics, {0}", ex.getMessage());
+            throw new InternalServerErrorException(ex);
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package rest;
 
 import ejb.local.CustomerManagerEJBLocal;
-import ejb.local.ProductsBoughtManagerEJBLocal;
 import encryption.EmailManager;
 import encryption.EncriptionManagerFactory;
+import encryption.TokenManager;
 import entities.Customer;
+import entities.CustomerSummary;
 import exceptions.CreateException;
 import exceptions.DeleteException;
 import exceptions.ReadException;
@@ -33,9 +34,6 @@ public class CustomerREST {
     @EJB
     private CustomerManagerEJBLocal customerEjb;  // EJB for managing customer-related operations
 
-    @EJB
-    private ProductsBoughtManagerEJBLocal productBoughtEjb;  // EJB for managing products bought by customers
-
     /**
      * Handles the HTTP PUT request for updating customer information.
      *
@@ -63,8 +61,8 @@ public class CustomerREST {
     public void deleteCustomer(@PathParam("id") Integer id) {
         try {
             LOGGER.info("CustomerREST service: Deleting customer with id=" + id);
-            productBoughtEjb.deleteByCustomerId(id);
             customerEjb.deleteCustomerById(id);
+            TokenManager.getInstance().revokeUser(id);
         } catch (DeleteException ex) {
             LOGGER.log(Level.SEVERE, "CustomerREST service: Exception deleting customer.", ex);
             throw new InternalServerErrorException(ex);
@@ -92,17 +90,21 @@ public class CustomerREST {
     /**
      * Handles the HTTP GET request for retrieving customer details by ID.
      *
+     * The customer is returned in its public view, without the password nor
+     * the purchases, so no encryption is involved; sending it back to the PUT
+     * request keeps the current password.
+     *
      * @param userId The ID of the customer to retrieve.
-     * @return Response containing the retrieved Customer object or an error
-     * message.
+     * @return Response containing the retrieved {@link CustomerSummary}
+     * object or an error message.
      */
     @GET
     @Path("{userId}")
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public Customer getCustomer(@PathParam("userId") Integer userId) {
+    public CustomerSummary getCustomer(@PathParam("userId") Integer userId) {
         try {
             LOGGER.info("CustomerREST service: Get customer with id=" + userId);
-            return customerEjb.getCustomer(userId);
+            return customerEjb.getCustomerSummary(userId);
         } catch (ReadException ex) {
             LOGGER.log(Level.SEVERE, "CustomerREST service: Exception getting customer.", ex);
             throw new InternalServerErrorException(ex);
@@ -0,0 +1,82 @@
+package rest;
+
+import java.util.List;
+import javax.ws.rs.NotAcceptableException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
+
+/**
+ * Helper for the conditional GETs of the catalog resources. Their ETag is
+ * the version token kept by the catalog plus the negotiated media type, so
+ * the XML and JSON representations of the same version get different strong
+ * tags, and an unchanged resource is answered without reading nor
+ * serializing it. Responses carry {@code Vary: Accept}, so shared caches
+ * keep the representations apart.
+ *
+ * @author Alexander Epelde
+ */
+final class EntityTags {
+
+    /**
+     * Representations offered by the catalog resources.
+     */
+    private static final List<Variant> VARIANTS = Variant.mediaTypes(
+            MediaType.APPLICATION_XML_TYPE, MediaType.APPLICATION_JSON_TYPE).build();
+
+    private EntityTags() {
+    }
+
+    /**
+     * Selects the representation to send for a request.
+     *
+     * @param request The current request.
+     * @return The selected variant.
+     * @throws NotAcceptableException If the client accepts neither XML nor
+     * JSON.
+     */
+    static Variant selectVariant(Request request) {
+        Variant variant = request.selectVariant(VARIANTS);
+        if (variant == null) {
+            throw new NotAcceptableException();
+        }
+        return variant;
+    }
+
+    /**
+     * Builds the strong ETag of a representation.
+     *
+     * @param version The version token of the resource.
+     * @param variant The selected representation.
+     * @return The entity tag.
+     */
+    static EntityTag entityTag(String version, Variant variant) {
+        return new EntityTag(version + "-" + variant.getMediaType().getSubtype());
+    }
+
+    /**
+     * Sets the ETag of a response, full or not modified, and the header
+     * telling caches that it depends on the negotiated media type.
+     *
+     * @param response The response to complete.
+     * @param etag The entity tag of the representation.
+     * @return The same response builder.
+     */
+    static Response.ResponseBuilder tagged(Response.ResponseBuilder response, EntityTag etag) {
+        return vary(response.tag(etag));
+    }
+
+    /**
+     * Adds the header telling caches that a response depends on the
+     * negotiated media type.
+     *
+     * @param response The response to complete.
+     * @return The same response builder.
+     */
+    static Response.ResponseBuilder vary(Response.ResponseBuilder response) {
+        return response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+}
@@ -1,15 +1,33 @@
 package rest;
 
+import ejb.local.CatalogManagerEJBLocal;
+import ejb.local.ProductImportEJBLocal;
 import ejb.local.ProductManagerEJBLocal;
-import ejb.local.ProductsBoughtManagerEJBLocal;
 import entities.Product;
+import entities.ProductFacets;
+import entities.ProductImportReport;
+import entities.ProductSummary;
+import entities.Suggestion;
 import exceptions.CreateException;
 import exceptions.DeleteException;
-import exceptions.ReadException;
 import exceptions.UpdateException;
 import javax.ejb.EJB;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
+import search.SuggestionIndex;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -18,7 +36,8 @@ import java.util.logging.Logger;
  *
  * This class provides CRUD (Create, Read, Update, Delete) operations for
  * Product entities using XML as the data format. It integrates with the
- * {@link ProductManagerEJBLocal} EJB for handling business logic.
+ * {@link ProductManagerEJBLocal} EJB for handling business logic. Reads are
+ * served from the in-memory catalog of {@link CatalogManagerEJBLocal}.
  *
  *
  * @author Alexander Epelde
@@ -31,17 +50,68 @@ public class ProductREST {
      */
     private static final Logger LOGGER = Logger.getLogger("ProductREST");
 
+    /**
+     * Page size used when a cursor is given without an explicit limit.
+     */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Upper bound for the page size a client can request.
+     */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Number of search results returned when no limit is given.
+     */
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    /**
+     * Upper bound for the number of search results a client can request.
+     */
+    private static final int MAX_SEARCH_LIMIT = 100;
+
+    /**
+     * Search mode matching the words of the query as they are written.
+     */
+    private static final String SEARCH_MODE_EXACT = "exact";
+
+    /**
+     * Search mode tolerating typos in the words of the query.
+     */
+    private static final String SEARCH_MODE_FUZZY = "fuzzy";
+
+    /**
+     * Response header carrying the cursor of the next page.
+     */
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Media type of newline delimited JSON, one object per line.
+     */
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * Media type of comma separated values.
+     */
+    private static final String TEXT_CSV = "text/csv";
+
     /**
      * EJB for managing Product entity CRUD operations.
      */
     @EJB
     private ProductManagerEJBLocal productEjb;
-    
+
     /**
-     * EJB for managing ProductsBought entity CRUD operations.
+     * EJB holding the catalog in memory.
      */
     @EJB
-    private ProductsBoughtManagerEJBLocal productsBoughtEjb;
+    private CatalogManagerEJBLocal catalogEjb;
+
+    /**
+     * EJB for importing products in bulk.
+     */
+    @EJB
+    private ProductImportEJBLocal productImportEjb;
 
     /**
      * Creates a new Product using XML data.
@@ -62,6 +132,39 @@ public class ProductREST {
         }
     }
 
+    /**
+     * Creates Products in bulk from NDJSON, one JSON object per line, or
+     * from CSV with a header line, where quoted fields may span several
+     * lines. The body is read as it arrives and rows are inserted in chunks,
+     * each committed on its own. Invalid rows are skipped and listed in the
+     * report with the number of their first line.
+     *
+     * @param body The request body.
+     * @param headers The request headers, used to tell the format and the
+     * charset of the body.
+     * @return The {@link ProductImportReport} of the import.
+     * @throws InternalServerErrorException If the body cannot be read; the
+     * chunks inserted until then stay inserted.
+     */
+    @POST
+    @Path("bulk")
+    @Consumes({APPLICATION_NDJSON, TEXT_CSV})
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public ProductImportReport createBulk(InputStream body, @Context HttpHeaders headers) {
+        MediaType type = headers.getMediaType();
+        String charset = type.getParameters().get(MediaType.CHARSET_PARAMETER);
+        try {
+            LOGGER.log(Level.INFO, "ProductRESTful service: bulk create from {0}.", type);
+            return productImportEjb.importProducts(
+                    new InputStreamReader(body, charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset)),
+                    type.isCompatible(MediaType.valueOf(TEXT_CSV)));
+        } catch (CreateException ex) {
+            LOGGER.log(Level.SEVERE, "ProductRESTful service: Exception creating products in bulk, {0}",
+                    ex.getMessage());
+            throw new InternalServerErrorException(ex);
+        }
+    }
+
     /**
      * Updates an existing Product using XML data.
      *
@@ -94,7 +197,6 @@ public class ProductREST {
     public void delete(@PathParam("id") Integer id) {
         try {
             LOGGER.log(Level.INFO, "ProductRESTful service: delete Product by id={0}.", id);
-            productsBoughtEjb.deleteByProductId(id);
             productEjb.deleteProduct(id);
         } catch (DeleteException ex) {
             LOGGER.log(Level.SEVERE, "ProductRESTful service: Exception deleting product by id, {0}", ex.getMessage());
@@ -106,43 +208,239 @@ public class ProductREST {
      * Retrieves a Product by its ID.
      *
      * @param id The ID of the Product to be retrieved.
-     * @return The retrieved {@link Product} object.
-     * @throws InternalServerErrorException If there is any Exception during
-     * processing.
+     * @return The retrieved {@link ProductSummary} object.
+     * @throws NotFoundException If there is no product with that ID.
      */
     @GET
     @Path("{id}")
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public Product find(@PathParam("id") Integer id) {
-        Product product = null;
-        try {
-            LOGGER.log(Level.INFO, "ProductRESTful service: find Product by id={0}.", id);
-            product = productEjb.selectProductById(id);
-        } catch (ReadException ex) {
-            LOGGER.log(Level.SEVERE, "ProductRESTful service: Exception reading product by id, {0}", ex.getMessage());
-            throw new InternalServerErrorException(ex);
+    public ProductSummary find(@PathParam("id") Integer id) {
+        LOGGER.log(Level.INFO, "ProductRESTful service: find Product by id={0}.", id);
+        ProductSummary product = catalogEjb.getProduct(id);
+        if (product == null) {
+            throw new NotFoundException("Product " + id + " not found");
         }
         return product;
     }
 
     /**
-     * Retrieves all Products.
+     * Retrieves all Products. When an {@code after} cursor or a {@code limit}
+     * is given, only one page of products ordered by ID is returned. In that
+     * case the cursor of the following page is sent in the
+     * {@value #NEXT_CURSOR_HEADER} header and as a {@code Link} header with
+     * {@code rel="next"}; both are omitted on the last page.
+     * <p>
+     * When a {@code tag}, {@code supplier}, {@code minPrice} or
+     * {@code maxPrice} filter is given, the response is a
+     * {@link ProductFacets} with the matching products, their total and the
+     * number of matching products per tag and per supplier. The same paging
+     * applies to its products.
+     * <p>
+     * Every response carries an ETag derived from the version of the product
+     * list. A request whose {@code If-None-Match} matches it gets a
+     * {@code 304 Not Modified} without the list being read.
      *
-     * @return A List of {@link Product} objects representing all products.
-     * @throws InternalServerErrorException If there is any Exception during
-     * processing.
+     * @param after The ID of the last product of the previous page.
+     * @param limit The maximum number of products of the page.
+     * @param tag The ID of the tag of the products.
+     * @param supplier The ID of the supplier of the products.
+     * @param minPrice The lowest price of the products, inclusive.
+     * @param maxPrice The highest price of the products, inclusive.
+     * @param uriInfo Information about the request URI, used to build the
+     * pagination links.
+     * @param request The current request, used to evaluate its
+     * preconditions.
+     * @return A List of {@link ProductSummary} objects representing all
+     * products, or the requested page of them, or a {@link ProductFacets}
+     * when filtering.
+     * @throws BadRequestException If the limit is not a positive number or
+     * the price range is empty.
      */
     @GET
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public List<Product> findAll() {
-        List<Product> products = null;
-        try {
+    public Response findAll(@QueryParam("after") Integer after,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("tag") Integer tag,
+            @QueryParam("supplier") Integer supplier,
+            @QueryParam("minPrice") Double minPrice,
+            @QueryParam("maxPrice") Double maxPrice,
+            @Context UriInfo uriInfo,
+            @Context Request request) {
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be a positive number");
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new BadRequestException("minPrice must not be greater than maxPrice");
+        }
+        Variant variant = EntityTags.selectVariant(request);
+        EntityTag etag = EntityTags.entityTag(catalogEjb.getProductsVersion(), variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            LOGGER.log(Level.INFO, "ProductRESTful service: products not modified.");
+            return EntityTags.tagged(notModified, etag).build();
+        }
+        if (tag != null || supplier != null || minPrice != null || maxPrice != null) {
+            return findFacets(after, limit, tag, supplier, minPrice, maxPrice, uriInfo, variant, etag);
+        }
+        if (after == null && limit == null) {
             LOGGER.log(Level.INFO, "ProductRESTful service: find all products.");
-            products = productEjb.selectAllProducts();
-        } catch (ReadException ex) {
-            LOGGER.log(Level.SEVERE, "ProductRESTful service: Exception reading all products, {0}", ex.getMessage());
-            throw new InternalServerErrorException(ex);
+            List<ProductSummary> products = catalogEjb.getProducts();
+            return EntityTags.tagged(Response.ok(new GenericEntity<List<ProductSummary>>(products) {
+            }, variant), etag).build();
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        LOGGER.log(Level.INFO, "ProductRESTful service: find products after id={0}.", after);
+        // Ask for one extra row to know whether there is a next page.
+        List<ProductSummary> products = catalogEjb.getProductsAfter(after, pageSize + 1);
+        Response.ResponseBuilder response;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            Integer next = products.get(pageSize - 1).getProduct_id();
+            response = Response.ok(new GenericEntity<List<ProductSummary>>(products) {
+            }, variant);
+            response.header(NEXT_CURSOR_HEADER, next);
+            response.links(Link.fromUri(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("after", next)
+                    .replaceQueryParam("limit", pageSize)
+                    .build()).rel("next").build());
+        } else {
+            response = Response.ok(new GenericEntity<List<ProductSummary>>(products) {
+            }, variant);
+        }
+        return EntityTags.tagged(response, etag).links(Link.fromUri(uriInfo.getRequestUriBuilder()
+                .replaceQueryParam("after")
+                .replaceQueryParam("limit", pageSize)
+                .build()).rel("first").build()).build();
+    }
+
+    /**
+     * Builds the response of a filtered {@link #findAll} request.
+     *
+     * @param after The ID of the last product of the previous page.
+     * @param limit The maximum number of products of the page.
+     * @param tag The ID of the tag of the products.
+     * @param supplier The ID of the supplier of the products.
+     * @param minPrice The lowest price of the products, inclusive.
+     * @param maxPrice The highest price of the products, inclusive.
+     * @param uriInfo Information about the request URI, used to build the
+     * pagination links.
+     * @param variant The selected representation.
+     * @param etag The ETag of the product list.
+     * @return The response with the {@link ProductFacets}.
+     */
+    private Response findFacets(Integer after, Integer limit, Integer tag, Integer supplier,
+            Double minPrice, Double maxPrice, UriInfo uriInfo, Variant variant, EntityTag etag) {
+        LOGGER.log(Level.INFO, "ProductRESTful service: find products by tag={0}, supplier={1}, price {2}-{3}.",
+                new Object[]{tag, supplier, minPrice, maxPrice});
+        if (after == null && limit == null) {
+            ProductFacets facets = catalogEjb.getProductFacets(tag, supplier, minPrice, maxPrice, null, Integer.MAX_VALUE);
+            return EntityTags.tagged(Response.ok(facets, variant), etag).build();
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        // Ask for one extra product to know whether there is a next page.
+        ProductFacets facets = catalogEjb.getProductFacets(tag, supplier, minPrice, maxPrice, after, pageSize + 1);
+        Response.ResponseBuilder response = Response.ok(facets, variant);
+        if (facets.getProducts().size() > pageSize) {
+            facets.setProducts(facets.getProducts().subList(0, pageSize));
+            Integer next = facets.getProducts().get(pageSize - 1).getProduct_id();
+            response.header(NEXT_CURSOR_HEADER, next);
+            response.links(Link.fromUri(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("after", next)
+                    .replaceQueryParam("limit", pageSize)
+                    .build()).rel("next").build());
+        }
+        return EntityTags.tagged(response, etag).links(Link.fromUri(uriInfo.getRequestUriBuilder()
+                .replaceQueryParam("after")
+                .replaceQueryParam("limit", pageSize)
+                .build()).rel("first").build()).build();
+    }
+
+    /**
+     * Searches Products by text. Every product whose brand, model,
+     * description, other information or product number contains any word of
+     * the query is a match; matches are ranked by relevance. With
+     * {@code mode=fuzzy}, misspelled words also match the closest words of
+     * the products, ranked lower the more typos they have.
+     *
+     * @param query The text to search.
+     * @param mode {@code exact}, the default, or {@code fuzzy}.
+     * @param limit The maximum number of products to retrieve.
+     * @return A List of {@link ProductSummary} objects, best match first.
+     * @throws BadRequestException If the query is empty, the mode is unknown
+     * or the limit is not a positive number.
+     */
+    @GET
+    @Path("search")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public List<ProductSummary> search(@QueryParam("q") String query,
+            @QueryParam("mode") @DefaultValue(SEARCH_MODE_EXACT) String mode,
+            @QueryParam("limit") Integer limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new BadRequestException("q must not be empty");
+        }
+        if (!SEARCH_MODE_EXACT.equals(mode) && !SEARCH_MODE_FUZZY.equals(mode)) {
+            throw new BadRequestException("mode must be " + SEARCH_MODE_EXACT + " or " + SEARCH_MODE_FUZZY);
+        }
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be a positive number");
+        }
+        LOGGER.log(Level.INFO, "ProductRESTful service: {0} search products by {1}.", new Object[]{mode, query});
+        int size = limit == null ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_SEARCH_LIMIT);
+        return SEARCH_MODE_FUZZY.equals(mode)
+                ? catalogEjb.fuzzySearchProducts(query, size)
+                : catalogEjb.searchProducts(query, size);
+    }
+
+    /**
+     * Suggests completions of a typed prefix among the product brands,
+     * product models and supplier names, most popular first. It is meant to
+     * be called on every keystroke, so it is answered from memory and only
+     * logged at the FINE level.
+     *
+     * @param prefix The typed text.
+     * @param limit The maximum number of completions.
+     * @return A List of {@link Suggestion} objects.
+     * @throws BadRequestException If the prefix is missing or the limit is
+     * not a positive number.
+     */
+    @GET
+    @Path("suggest")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public List<Suggestion> suggest(@QueryParam("prefix") String prefix,
+            @QueryParam("limit") Integer limit) {
+        if (prefix == null) {
+            throw new BadRequestException("prefix is required");
+        }
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be a positive number");
+        }
+        LOGGER.log(Level.FINE, "ProductRESTful service: suggest completions of {0}.", prefix);
+        return catalogEjb.suggest(prefix, limit == null ? SuggestionIndex.MAX_SUGGESTIONS : limit);
+    }
+
+    /**
+     * Streams all Products. Unlike {@link #findAll}, the body is written
+     * product by product as it is serialized, so it is never held in memory
+     * as a whole. The ETag and {@code If-None-Match} handling is the same.
+     *
+     * @param request The current request, used to negotiate the
+     * representation and to evaluate its preconditions.
+     * @return The streamed list of {@link ProductSummary} objects.
+     */
+    @GET
+    @Path("stream")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response stream(@Context Request request) {
+        Variant variant = EntityTags.selectVariant(request);
+        EntityTag etag = EntityTags.entityTag(catalogEjb.getProductsVersion(), variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return EntityTags.tagged(notModified, etag).build();
         }
-        return products;
+        LOGGER.log(Level.INFO, "ProductRESTful service: stream all products.");
+        List<ProductSummary> products = catalogEjb.getProducts();
+        Response.ResponseBuilder response = Response.ok(
+                StreamingLists.of(variant, "products", products::forEach), variant);
+        return EntityTags.tagged(response, etag).build();
     }
 }
@@ -1,15 +1,35 @@
 package rest;
 
-import ejb.local.CustomerManagerEJBLocal;
 import ejb.local.ProductsBoughtManagerEJBLocal;
+import ejb.local.PurchaseLedgerEJBLocal;
 import entities.Customer;
 import entities.ProductsBought;
+import entities.PurchaseHistoryEntry;
+import entities.PurchaseRecord;
 import exceptions.ReadException;
 import exceptions.UpdateException;
 
 import javax.ejb.EJB;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.Link;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,33 +47,91 @@ public class ProductsBoughtREST {
 
     private static final Logger LOGGER = Logger.getLogger("ProductsBoughtREST");
 
+    /**
+     * Header line of the purchase export.
+     */
+    private static final String EXPORT_HEADER = "customerId,customerName,customerEmail,productId,"
+            + "productNumber,brand,model,price,amount,boughtTimestamp";
+
+    /**
+     * Number of history entries returned when no limit is given.
+     */
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+
+    /**
+     * Upper bound for the number of history entries a client can request.
+     */
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+
+    /**
+     * Response header carrying the cursor of the next page.
+     */
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @EJB
     private ProductsBoughtManagerEJBLocal productsBoughtEjb;  // EJB for managing products bought operations
 
     @EJB
-    private CustomerManagerEJBLocal customerEjb;  // EJB for managing customer-related operations
+    private PurchaseLedgerEJBLocal ledgerEjb;  // EJB maintaining the purchase totals from the ledger
 
     /**
-     * Handles the HTTP POST request for purchasing a product.
+     * Handles the HTTP POST request for purchasing a product. The cost of the
+     * basket is computed and debited by the server, and every line of the
+     * basket is applied in a single transaction. The request fails if the
+     * balance does not cover the basket.
      *
      * @param customer The Customer object representing the customer purchasing
-     * the product.
+     * the product, with the quantities bought now as the amounts of its
+     * basket. Its balance is ignored.
      */
     @POST
     @Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     public void purchaseProduct(Customer customer) {
         try {
             LOGGER.info("ProductsBoughtREST service: Purchasing product");
-            customerEjb.updateBalance(customer.getBalance(), customer.getId());
-            for (ProductsBought pb : customer.getProductsBought()) {
-                productsBoughtEjb.purchaseProduct(pb);
-            }
+            productsBoughtEjb.checkout(customer);
         } catch (UpdateException e) {
             LOGGER.log(Level.SEVERE, "ProductsBoughtREST service: Error purchasing product", e);
             throw new InternalServerErrorException(e);
         }
     }
 
+    /**
+     * Handles the HTTP POST request for adding a quantity to a purchased
+     * product. Unlike the PUT request, the amount received is appended to the
+     * purchase ledger, so concurrent requests do not overwrite each other;
+     * the purchase total includes it within a few seconds.
+     *
+     * @param productBought The ProductsBought object whose amount is the
+     * quantity to add.
+     */
+    @POST
+    @Path("add")
+    @Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public void addPurchase(ProductsBought productBought) {
+        try {
+            LOGGER.info("ProductsBoughtREST service: Adding to purchase");
+            productsBoughtEjb.addPurchase(productBought);
+        } catch (UpdateException e) {
+            LOGGER.log(Level.SEVERE, "ProductsBoughtREST service: Error adding to purchase", e);
+            throw new InternalServerErrorException(e);
+        }
+    }
+
+    /**
+     * Handles the HTTP POST request for recomputing every purchase total from
+     * the purchase ledger. The rebuild runs in the background.
+     *
+     * @return An empty 202 response.
+     */
+    @POST
+    @Path("rebuild")
+    public Response rebuildTotals() {
+        LOGGER.info("ProductsBoughtREST service: Rebuilding purchase totals");
+        ledgerEjb.rebuild();
+        return Response.accepted().build();
+    }
+
     /**
      * Handles the HTTP PUT request for updating the amount of a purchased
      * product.
@@ -94,4 +172,194 @@ public class ProductsBoughtREST {
             throw new InternalServerErrorException(e);
         }
     }
+
+    /**
+     * Handles the HTTP GET request for retrieving one page of the purchase
+     * history of a customer, newest first. Each entry only holds the
+     * product, the amount and the time, read in a single query. The cursor
+     * of the following page is sent in the {@value #NEXT_CURSOR_HEADER}
+     * header and as a {@code Link} header with {@code rel="next"}; both are
+     * omitted on the last page. Purchases without a purchase time are not
+     * part of the history.
+     *
+     * @param customerId The ID of the customer.
+     * @param after The cursor of the page, as sent with the previous one, or
+     * null for the first page.
+     * @param limit The maximum number of entries of the page.
+     * @param uriInfo Information about the request URI, used to build the
+     * pagination link.
+     * @return The page of {@link PurchaseHistoryEntry} objects.
+     * @throws BadRequestException If the cursor is malformed or the limit is
+     * not a positive number.
+     */
+    @GET
+    @Path("{customerId}/history")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response getPurchaseHistory(@PathParam("customerId") Integer customerId,
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit,
+            @Context UriInfo uriInfo) {
+        if (limit != null && limit <= 0) {
+            throw new BadRequestException("limit must be a positive number");
+        }
+        Date beforeTimestamp = null;
+        Integer beforeProductId = null;
+        if (after != null) {
+            String[] parts = after.split("_");
+            try {
+                if (parts.length != 2) {
+                    throw new NumberFormatException(after);
+                }
+                beforeTimestamp = new Date(Long.parseLong(parts[0]));
+                beforeProductId = Integer.valueOf(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("after is not a valid cursor");
+            }
+        }
+        int pageSize = limit == null ? DEFAULT_HISTORY_PAGE_SIZE : Math.min(limit, MAX_HISTORY_PAGE_SIZE);
+        try {
+            LOGGER.info("ProductsBoughtREST service: Get purchase history of customer with id=" + customerId);
+            // Ask for one extra entry to know whether there is a next page.
+            List<PurchaseHistoryEntry> entries = productsBoughtEjb.getPurchaseHistory(customerId,
+                    beforeTimestamp, beforeProductId, pageSize + 1);
+            Response.ResponseBuilder response;
+            if (entries.size() > pageSize) {
+                entries = entries.subList(0, pageSize);
+                PurchaseHistoryEntry last = entries.get(pageSize - 1);
+                String next = last.getBoughtTimestamp().getTime() + "_" + last.getProductId();
+                response = Response.ok(new GenericEntity<List<PurchaseHistoryEntry>>(entries) {
+                });
+                response.header(NEXT_CURSOR_HEADER, next);
+                response.links(Link.fromUri(uriInfo.getRequestUriBuilder()
+                        .replaceQueryParam("after", next)
+                        .replaceQueryParam("limit", pageSize)
+                        .build()).rel("next").build());
+            } else {
+                response = Response.ok(new GenericEntity<List<PurchaseHistoryEntry>>(entries) {
+                });
+            }
+            return response.build();
+        } catch (ReadException e) {
+            LOGGER.log(Level.SEVERE, "ProductsBoughtREST service: Error getting purchase history", e);
+            throw new InternalServerErrorException(e);
+        }
+    }
+
+    /**
+     * Handles the HTTP GET request for exporting every purchase made within
+     * a time range as CSV, with the customer and product data of each one.
+     * Rows are read through a forward-only database cursor and written to
+     * the response as they arrive, so the export is never held in memory.
+     *
+     * @param from The earliest purchase time, inclusive, as an ISO date or
+     * date-time; a date alone starts at midnight of the server time zone.
+     * @param to The latest purchase time, exclusive, in the same format.
+     * @return The CSV body, with a header line.
+     * @throws BadRequestException If a time cannot be parsed.
+     */
+    @GET
+    @Path("export")
+    @Produces("text/csv")
+    public StreamingOutput exportPurchases(@QueryParam("from") String from, @QueryParam("to") String to) {
+        final Date fromTime = parseTime(from, "from");
+        final Date toTime = parseTime(to, "to");
+        LOGGER.info("ProductsBoughtREST service: Exporting purchases from " + from + " to " + to);
+        return output -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write(EXPORT_HEADER);
+            writer.write("\r\n");
+            try {
+                productsBoughtEjb.exportPurchases(fromTime, toTime, record -> {
+                    try {
+                        writeRecord(writer, record);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (ReadException e) {
+                LOGGER.log(Level.SEVERE, "ProductsBoughtREST service: Error exporting purchases", e);
+                throw new InternalServerErrorException(e);
+            }
+            writer.flush();
+        };
+    }
+
+    /**
+     * Parses a time query parameter.
+     *
+     * @param value An ISO date or date-time with offset, or null.
+     * @param name The name of the parameter, for the error message.
+     * @return The time, or null.
+     * @throws BadRequestException If the value cannot be parsed.
+     */
+    private static Date parseTime(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                return Date.from(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            }
+            return Date.from(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + " must be an ISO date or date-time");
+        }
+    }
+
+    /**
+     * Writes a purchase as a CSV line.
+     *
+     * @param writer The writer of the response.
+     * @param record The purchase.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void writeRecord(Writer writer, PurchaseRecord record) throws IOException {
+        writer.write(String.valueOf(record.getCustomerId()));
+        writer.write(',');
+        writeField(writer, record.getCustomerName());
+        writer.write(',');
+        writeField(writer, record.getCustomerEmail());
+        writer.write(',');
+        writer.write(String.valueOf(record.getProductId()));
+        writer.write(',');
+        writeField(writer, record.getProductNumber());
+        writer.write(',');
+        writeField(writer, record.getBrand());
+        writer.write(',');
+        writeField(writer, record.getModel());
+        writer.write(',');
+        if (record.getPrice() != null) {
+            writer.write(record.getPrice().toString());
+        }
+        writer.write(',');
+        if (record.getAmount() != null) {
+            writer.write(record.getAmount().toString());
+        }
+        writer.write(',');
+        if (record.getBoughtTimestamp() != null) {
+            writer.write(DateTimeFormatter.ISO_INSTANT.format(record.getBoughtTimestamp().toInstant()));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a text field, quoting it when it holds a comma, a quote or a
+     * line break. Null is written as an empty field.
+     *
+     * @param writer The writer of the response.
+     * @param value The value of the field.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void writeField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
 }
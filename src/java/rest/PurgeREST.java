@@ -0,0 +1,66 @@
+package rest;
+
+import ejb.local.PurgeManagerEJBLocal;
+import entities.PurgeJob;
+import javax.ejb.EJB;
+import javax.ws.rs.*;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class exposes the status of the background purges started by deleting
+ * a tag or a supplier in asynchronous mode. It integrates with the
+ * {@link PurgeManagerEJBLocal} EJB.
+ *
+ * @author Alexander Epelde
+ */
+@Path("purges")
+public class PurgeREST {
+
+    /**
+     * Logger for the class.
+     */
+    private static final Logger LOGGER = Logger.getLogger("PurgeREST");
+
+    /**
+     * EJB keeping track of the purge jobs.
+     */
+    @EJB
+    private PurgeManagerEJBLocal purgeEjb;
+
+    /**
+     * Retrieves the status of a purge job.
+     *
+     * @param id The ID of the job.
+     * @return The {@link PurgeJob} with its progress.
+     * @throws NotFoundException If there is no job with that ID.
+     */
+    @GET
+    @Path("{id}")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public PurgeJob find(@PathParam("id") String id) {
+        LOGGER.log(Level.INFO, "PurgeRESTful service: find purge job by id={0}.", id);
+        PurgeJob job = purgeEjb.getJob(id);
+        if (job == null) {
+            throw new NotFoundException("No purge job with id " + id);
+        }
+        return job;
+    }
+
+    /**
+     * Retrieves the status of every running or recently finished purge job.
+     *
+     * @return The list of {@link PurgeJob} objects.
+     */
+    @GET
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response findAll() {
+        LOGGER.log(Level.INFO, "PurgeRESTful service: find all purge jobs.");
+        return Response.ok(new GenericEntity<List<PurgeJob>>(purgeEjb.getJobs()) {
+        }).build();
+    }
+}
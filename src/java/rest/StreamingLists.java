@@ -0,0 +1,185 @@
+package rest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Helper writing lists element by element straight to the response, as a
+ * JSON array or as an XML document with one child per element. Only the
+ * element being written is held in memory, and the first bytes reach the
+ * client as soon as the source produces its first element.
+ *
+ * @author Alexander Epelde
+ */
+final class StreamingLists {
+
+    /**
+     * Mapper for the JSON output. Like the JSON provider of the application,
+     * it honours both Jackson and JAXB annotations.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static {
+        MAPPER.setAnnotationIntrospector(AnnotationIntrospector.pair(
+                new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector(MAPPER.getTypeFactory())));
+        MAPPER.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Factory of the XML writers.
+     */
+    private static final XMLOutputFactory XML_FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * JAXB contexts by element class. Creating a context is expensive, so
+     * every class gets only one.
+     */
+    private static final Map<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    private StreamingLists() {
+    }
+
+    /**
+     * Source of the elements of a streamed list. It hands every element to
+     * the consumer in order and may hold resources, like an open cursor,
+     * while doing so.
+     *
+     * @param <T> The type of the elements.
+     */
+    @FunctionalInterface
+    interface Source<T> {
+
+        /**
+         * Hands every element to the consumer.
+         *
+         * @param consumer The consumer writing the elements.
+         * @throws Exception If the elements cannot be read.
+         */
+        void forEach(Consumer<? super T> consumer) throws Exception;
+    }
+
+    /**
+     * Streams a list in the representation selected for the request.
+     *
+     * @param <T> The type of the elements.
+     * @param variant The selected representation, XML or JSON.
+     * @param rootName The name of the root element of the XML document.
+     * @param source The source of the elements.
+     * @return The output writing the list.
+     */
+    static <T> StreamingOutput of(Variant variant, String rootName, Source<T> source) {
+        return MediaType.APPLICATION_JSON_TYPE.isCompatible(variant.getMediaType())
+                ? json(source) : xml(rootName, source);
+    }
+
+    /**
+     * Streams a list as a JSON array.
+     *
+     * @param <T> The type of the elements.
+     * @param source The source of the elements.
+     * @return The output writing the array.
+     */
+    static <T> StreamingOutput json(Source<T> source) {
+        return (OutputStream output) -> {
+            try (JsonGenerator generator = MAPPER.getFactory().createGenerator(output)) {
+                generator.writeStartArray();
+                source.forEach(element -> {
+                    try {
+                        MAPPER.writeValue(generator, element);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        };
+    }
+
+    /**
+     * Streams a list as an XML document whose root element holds one child
+     * element per list element.
+     *
+     * @param <T> The type of the elements.
+     * @param rootName The name of the root element.
+     * @param source The source of the elements.
+     * @return The output writing the document.
+     */
+    static <T> StreamingOutput xml(String rootName, Source<T> source) {
+        return (OutputStream output) -> {
+            Map<Class<?>, Marshaller> marshallers = new HashMap<>();
+            try {
+                XMLStreamWriter writer = XML_FACTORY.createXMLStreamWriter(output, "UTF-8");
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement(rootName);
+                source.forEach(element -> {
+                    try {
+                        marshaller(marshallers, element.getClass()).marshal(element, writer);
+                    } catch (JAXBException e) {
+                        throw new UncheckedIOException(new IOException(e));
+                    }
+                });
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.flush();
+                writer.close();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        };
+    }
+
+    /**
+     * Gets the marshaller writing elements of a class as XML fragments,
+     * creating it the first time a stream meets the class. Marshallers are
+     * not thread safe, so each stream keeps its own.
+     *
+     * @param marshallers The marshallers of the current stream.
+     * @param type The class of the elements.
+     * @return The marshaller.
+     * @throws JAXBException If the class cannot be bound.
+     */
+    private static Marshaller marshaller(Map<Class<?>, Marshaller> marshallers, Class<?> type)
+            throws JAXBException {
+        Marshaller marshaller = marshallers.get(type);
+        if (marshaller == null) {
+            JAXBContext context = CONTEXTS.get(type);
+            if (context == null) {
+                context = JAXBContext.newInstance(type);
+                CONTEXTS.put(type, context);
+            }
+            marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            marshallers.put(type, marshaller);
+        }
+        return marshaller;
+    }
+}
@@ -1,16 +1,23 @@
 package rest;
 
-import ejb.local.ProductManagerEJBLocal;
-import ejb.local.ProductsBoughtManagerEJBLocal;
+import ejb.local.CatalogManagerEJBLocal;
+import ejb.local.PurgeManagerEJBLocal;
 import ejb.local.SupplierManagerEJBLocal;
+import entities.PurgeJob;
 import entities.Supplier;
 import exceptions.CreateException;
 import exceptions.DeleteException;
-import exceptions.ReadException;
 import exceptions.UpdateException;
 import javax.ejb.EJB;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -19,7 +26,8 @@ import java.util.logging.Logger;
  *
  * This class provides CRUD (Create, Read, Update, Delete) operations for
  * Supplier entities using XML as the data format. It integrates with the
- * {@link SupplierManagerEJBLocal} EJB for handling business logic.
+ * {@link SupplierManagerEJBLocal} EJB for handling business logic. Reads are
+ * served from the in-memory catalog of {@link CatalogManagerEJBLocal}.
  *
  * @author Alexander Epelde
  */
@@ -38,16 +46,16 @@ public class SupplierREST {
     private SupplierManagerEJBLocal supplierEjb;
 
     /**
-     * EJB for managing Product entity CRUD operations.
+     * EJB running background purges.
      */
     @EJB
-    private ProductManagerEJBLocal productEjb;
+    private PurgeManagerEJBLocal purgeEjb;
 
     /**
-     * EJB for managing ProductsBought entity CRUD operations.
+     * EJB holding the catalog in memory.
      */
     @EJB
-    private ProductsBoughtManagerEJBLocal productBoughtEjb;
+    private CatalogManagerEJBLocal catalogEjb;
 
     /**
      * Creates a new Supplier using XML data.
@@ -89,24 +97,38 @@ public class SupplierREST {
     }
 
     /**
-     * Deletes a Supplier by its ID.
+     * Deletes a Supplier by its ID, together with its products and their
+     * purchases. By default everything is deleted in a single transaction.
+     * With {@code async=true} the deletion runs in the background in bounded
+     * chunks; the response is then {@code 202 Accepted} with the initial
+     * {@link PurgeJob} and a {@code Location} pointing to its status.
      *
      * @param id The ID of the Supplier to be deleted.
+     * @param async Whether to purge in the background.
+     * @param uriInfo Information about the request URI, used to build the
+     * location of the purge job.
+     * @return An empty response, or the started {@link PurgeJob}.
      * @throws InternalServerErrorException If there is any Exception during
      * processing.
      */
     @DELETE
     @Path("{id}")
-    public void delete(@PathParam("id") Integer id) {
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response delete(@PathParam("id") Integer id,
+            @DefaultValue("false") @QueryParam("async") boolean async,
+            @Context UriInfo uriInfo) {
+        if (async) {
+            LOGGER.log(Level.INFO, "SupplierRESTful service: purge Supplier by id={0}.", id);
+            PurgeJob job = purgeEjb.startPurge(PurgeJob.OwnerType.SUPPLIER, id);
+            return Response.accepted(job)
+                    .location(uriInfo.getBaseUriBuilder().path(PurgeREST.class).path(job.getId()).build())
+                    .build();
+        }
         try {
             LOGGER.log(Level.INFO, "SupplierRESTful service: delete Supplier by id={0}.", id);
-            // Find all the product of that supplier
-            for (Integer product_id : productEjb.selectProductWithSupplierId(id)) {
-                productBoughtEjb.deleteByProductId(product_id); // Delete all the products bought of that product
-            }
-            productEjb.deleteProductBySupplierId(id); // Delete the products with of said Supplier
-            supplierEjb.deleteSupplier(id);// Delete the tag itself 
-        } catch (DeleteException | ReadException ex) {
+            supplierEjb.deleteSupplierWithProducts(id);
+            return Response.noContent().build();
+        } catch (DeleteException ex) {
             LOGGER.log(Level.SEVERE, "SupplierRESTful service: Exception deleting supplier by id, {0}", ex.getMessage());
             throw new InternalServerErrorException(ex);
         }
@@ -117,42 +139,68 @@ public class SupplierREST {
      *
      * @param id The ID of the Supplier to be retrieved.
      * @return The retrieved {@link Supplier} object.
-     * @throws InternalServerErrorException If there is any Exception during
-     * processing.
+     * @throws NotFoundException If there is no supplier with that ID.
      */
     @GET
     @Path("{id}")
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     public Supplier find(@PathParam("id") Integer id) {
-        Supplier supplier = null;
-        try {
-            LOGGER.log(Level.INFO, "SupplierRESTful service: find Supplier by id={0}.", id);
-            supplier = supplierEjb.selectSupplierById(id);
-        } catch (ReadException ex) {
-            LOGGER.log(Level.SEVERE, "SupplierRESTful service: Exception reading supplier by id, {0}", ex.getMessage());
-            throw new InternalServerErrorException(ex);
+        LOGGER.log(Level.INFO, "SupplierRESTful service: find Supplier by id={0}.", id);
+        Supplier supplier = catalogEjb.getSupplier(id);
+        if (supplier == null) {
+            throw new NotFoundException("Supplier " + id + " not found");
         }
         return supplier;
     }
 
     /**
-     * Retrieves all Suppliers.
+     * Retrieves all Suppliers. The response carries an ETag derived from the
+     * version of the supplier list; a request whose {@code If-None-Match} matches it
+     * gets a {@code 304 Not Modified} without the list being read.
      *
+     * @param request The current request, used to evaluate its
+     * preconditions.
      * @return A List of {@link Supplier} objects representing all suppliers.
-     * @throws InternalServerErrorException If there is any Exception during
-     * processing.
      */
     @GET
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public List<Supplier> findAll() {
-        List<Supplier> suppliers = null;
-        try {
-            LOGGER.log(Level.INFO, "SupplierRESTful service: find all suppliers.");
-            suppliers = supplierEjb.selectAllSuppliers();
-        } catch (ReadException ex) {
-            LOGGER.log(Level.SEVERE, "SupplierRESTful service: Exception reading all suppliers, {0}", ex.getMessage());
-            throw new InternalServerErrorException(ex);
+    public Response findAll(@Context Request request) {
+        Variant variant = EntityTags.selectVariant(request);
+        EntityTag etag = EntityTags.entityTag(catalogEjb.getSuppliersVersion(), variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            LOGGER.log(Level.INFO, "SupplierRESTful service: suppliers not modified.");
+            return EntityTags.tagged(notModified, etag).build();
+        }
+        LOGGER.log(Level.INFO, "SupplierRESTful service: find all suppliers.");
+        List<Supplier> suppliers = catalogEjb.getSuppliers();
+        return EntityTags.tagged(Response.ok(new GenericEntity<List<Supplier>>(suppliers) {
+        }, variant), etag).build();
+    }
+
+    /**
+     * Streams all Suppliers. Unlike {@link #findAll(Request)}, the body is written
+     * supplier by supplier as it is serialized, so it is never held in memory
+     * as a whole. The ETag and {@code If-None-Match} handling is the same.
+     *
+     * @param request The current request, used to negotiate the
+     * representation and to evaluate its preconditions.
+     * @return The streamed list of {@link Supplier} objects.
+     */
+    @GET
+    @Path("stream")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response stream(@Context Request request) {
+        Variant variant = EntityTags.selectVariant(request);
+        EntityTag etag = EntityTags.entityTag(catalogEjb.getSuppliersVersion(), variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return EntityTags.tagged(notModified, etag).build();
         }
-        return suppliers;
+        LOGGER.log(Level.INFO, "SupplierRESTful service: stream all suppliers.");
+        List<Supplier> suppliers = catalogEjb.getSuppliers();
+        Response.ResponseBuilder response = Response.ok(
+                StreamingLists.of(variant, "suppliers", suppliers::forEach), variant);
+        return EntityTags.tagged(response, etag).build();
     }
 }
@@ -1,16 +1,23 @@
 package rest;
 
-import ejb.local.ProductManagerEJBLocal;
-import ejb.local.ProductsBoughtManagerEJBLocal;
+import ejb.local.CatalogManagerEJBLocal;
+import ejb.local.PurgeManagerEJBLocal;
 import ejb.local.TagManagerEJBLocal;
+import entities.PurgeJob;
 import entities.Tag;
 import exceptions.CreateException;
 import exceptions.DeleteException;
-import exceptions.ReadException;
 import exceptions.UpdateException;
 import javax.ejb.EJB;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -19,7 +26,8 @@ import java.util.logging.Logger;
  *
  * This class provides CRUD (Create, Read, Update, Delete) operations for Tag
  * entities using XML as the data format. It integrates with the
- * {@link TagManagerEJBLocal} EJB for handling business logic.
+ * {@link TagManagerEJBLocal} EJB for handling business logic. Reads are
+ * served from the in-memory catalog of {@link CatalogManagerEJBLocal}.
  *
  * @author Alexander Epelde
  */
@@ -38,15 +46,16 @@ public class TagREST {
     private TagManagerEJBLocal tagEjb;
 
     /**
-     * EJB for managing Product entity CRUD operations.
+     * EJB running background purges.
      */
     @EJB
-    private ProductManagerEJBLocal productEjb;
+    private PurgeManagerEJBLocal purgeEjb;
+
     /**
-     * EJB for managing ProductsBought entity CRUD operations.
+     * EJB holding the catalog in memory.
      */
     @EJB
-    private ProductsBoughtManagerEJBLocal productBoughtEjb;
+    private CatalogManagerEJBLocal catalogEjb;
 
     /**
      * Creates a new Tag using XML data.
@@ -87,24 +96,38 @@ public class TagREST {
     }
 
     /**
-     * Deletes a Tag by its ID.
+     * Deletes a Tag by its ID, together with its products and their
+     * purchases. By default everything is deleted in a single transaction.
+     * With {@code async=true} the deletion runs in the background in bounded
+     * chunks; the response is then {@code 202 Accepted} with the initial
+     * {@link PurgeJob} and a {@code Location} pointing to its status.
      *
      * @param id The ID of the Tag to be deleted.
+     * @param async Whether to purge in the background.
+     * @param uriInfo Information about the request URI, used to build the
+     * location of the purge job.
+     * @return An empty response, or the started {@link PurgeJob}.
      * @throws InternalServerErrorException If there is any Exception during
      * processing.
      */
     @DELETE
     @Path("{id}")
-    public void delete(@PathParam("id") Integer id) {
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response delete(@PathParam("id") Integer id,
+            @DefaultValue("false") @QueryParam("async") boolean async,
+            @Context UriInfo uriInfo) {
+        if (async) {
+            LOGGER.log(Level.INFO, "TagRESTful service: purge Tag by id={0}.", id);
+            PurgeJob job = purgeEjb.startPurge(PurgeJob.OwnerType.TAG, id);
+            return Response.accepted(job)
+                    .location(uriInfo.getBaseUriBuilder().path(PurgeREST.class).path(job.getId()).build())
+                    .build();
+        }
         try {
             LOGGER.log(Level.INFO, "TagRESTful service: delete Tag by id={0}.", id);
-            //find all the products with said tag
-            for (Integer product_id : productEjb.selectProductWithTagId(id)) {
-                productBoughtEjb.deleteByProductId(product_id); // Delete all the products bought of that product
-            }
-            productEjb.deleteProductByTagId(id); // Delete the products with said tag
-            tagEjb.deleteTag(id); // Delete the tag itself 
-        } catch (DeleteException | ReadException ex) {
+            tagEjb.deleteTagWithProducts(id);
+            return Response.noContent().build();
+        } catch (DeleteException ex) {
             LOGGER.log(Level.SEVERE, "TagRESTful service: Exception deleting tag by id, {0}", ex.getMessage());
             throw new InternalServerErrorException(ex);
         }
@@ -115,42 +138,68 @@ public class TagREST {
      *
      * @param id The ID of the Tag to be retrieved.
      * @return The retrieved {@link Tag} object.
-     * @throws InternalServerErrorException If there is any Exception during
-     * processing.
+     * @throws NotFoundException If there is no tag with that ID.
      */
     @GET
     @Path("{id}")
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     public Tag find(@PathParam("id") Integer id) {
-        Tag tag = null;
-        try {
-            LOGGER.log(Level.INFO, "TagRESTful service: find Tag by id={0}.", id);
-            tag = tagEjb.selectTagById(id);
-        } catch (ReadException ex) {
-            LOGGER.log(Level.SEVERE, "TagRESTful service: Exception reading tag by id, {0}", ex.getMessage());
-            throw new InternalServerErrorException(ex);
+        LOGGER.log(Level.INFO, "TagRESTful service: find Tag by id={0}.", id);
+        Tag tag = catalogEjb.getTag(id);
+        if (tag == null) {
+            throw new NotFoundException("Tag " + id + " not found");
         }
         return tag;
     }
 
     /**
-     * Retrieves all Tags.
+     * Retrieves all Tags. The response carries an ETag derived from the
+     * version of the tag list; a request whose {@code If-None-Match} matches it
+     * gets a {@code 304 Not Modified} without the list being read.
      *
+     * @param request The current request, used to evaluate its
+     * preconditions.
      * @return A List of {@link Tag} objects representing all tags.
-     * @throws InternalServerErrorException If there is any Exception during
-     * processing.
      */
     @GET
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public List<Tag> findAll() {
-        List<Tag> tags = null;
-        try {
-            LOGGER.log(Level.INFO, "TagRESTful service: find all tags.");
-            tags = tagEjb.selectAllTags();
-        } catch (ReadException ex) {
-            LOGGER.log(Level.SEVERE, "TagRESTful service: Exception reading all tags, {0}", ex.getMessage());
-            throw new InternalServerErrorException(ex);
+    public Response findAll(@Context Request request) {
+        Variant variant = EntityTags.selectVariant(request);
+        EntityTag etag = EntityTags.entityTag(catalogEjb.getTagsVersion(), variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            LOGGER.log(Level.INFO, "TagRESTful service: tags not modified.");
+            return EntityTags.tagged(notModified, etag).build();
+        }
+        LOGGER.log(Level.INFO, "TagRESTful service: find all tags.");
+        List<Tag> tags = catalogEjb.getTags();
+        return EntityTags.tagged(Response.ok(new GenericEntity<List<Tag>>(tags) {
+        }, variant), etag).build();
+    }
+
+    /**
+     * Streams all Tags. Unlike {@link #findAll(Request)}, the body is written
+     * tag by tag as it is serialized, so it is never held in memory
+     * as a whole. The ETag and {@code If-None-Match} handling is the same.
+     *
+     * @param request The current request, used to negotiate the
+     * representation and to evaluate its preconditions.
+     * @return The streamed list of {@link Tag} objects.
+     */
+    @GET
+    @Path("stream")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response stream(@Context Request request) {
+        Variant variant = EntityTags.selectVariant(request);
+        EntityTag etag = EntityTags.entityTag(catalogEjb.getTagsVersion(), variant);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return EntityTags.tagged(notModified, etag).build();
         }
-        return tags;
+        LOGGER.log(Level.INFO, "TagRESTful service: stream all tags.");
+        List<Tag> tags = catalogEjb.getTags();
+        Response.ResponseBuilder response = Response.ok(
+                StreamingLists.of(variant, "tags", tags::forEach), variant);
+        return EntityTags.tagged(response, etag).build();
     }
 }
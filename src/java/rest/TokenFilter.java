@@ -0,0 +1,98 @@
+package rest;
+
+import encryption.TokenManager;
+import java.security.Principal;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Request filter authenticating the requests that carry an access token in
+ * an {@code Authorization: Bearer} header. The token is checked in memory by
+ * {@link TokenManager}; a valid one sets the security context of the
+ * request, with the user ID as principal and the user type as role, and an
+ * invalid one ends the request with 401. Requests without a token go on
+ * unchanged.
+ *
+ * @author Alexander Epelde
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class TokenFilter implements ContainerRequestFilter {
+
+    private static final Logger LOGGER = Logger.getLogger("TokenFilter");
+
+    /**
+     * Scheme of the Authorization header carrying a token.
+     */
+    static final String BEARER = "Bearer ";
+
+    /**
+     * Response header carrying the token issued on sign-in.
+     */
+    static final String TOKEN_HEADER = "X-Auth-Token";
+
+    /**
+     * Authenticates the request from its token, if it has one.
+     *
+     * @param requestContext The context of the request.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String token = getToken(requestContext.getHeaderString(HttpHeaders.AUTHORIZATION));
+        if (token == null) {
+            return;
+        }
+        final TokenManager.Claims claims = TokenManager.getInstance().verify(token);
+        if (claims == null) {
+            LOGGER.log(Level.INFO, "TokenFilter: Rejected invalid token for {0}.",
+                    requestContext.getUriInfo().getPath());
+            requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, BEARER.trim())
+                    .build());
+            return;
+        }
+        final boolean secure = requestContext.getSecurityContext().isSecure();
+        requestContext.setSecurityContext(new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return () -> String.valueOf(claims.getUserId());
+            }
+
+            @Override
+            public boolean isUserInRole(String role) {
+                return claims.getUserType().name().equals(role);
+            }
+
+            @Override
+            public boolean isSecure() {
+                return secure;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return BEARER.trim();
+            }
+        });
+    }
+
+    /**
+     * Extracts the token of an Authorization header.
+     *
+     * @param authorization The value of the header, or null.
+     * @return The token, or null if the header does not carry one.
+     */
+    static String getToken(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        return authorization.substring(BEARER.length()).trim();
+    }
+}
@@ -1,6 +1,7 @@
 package rest;
 
 import entities.User;
+import entities.UserSummary;
 import exceptions.CreateException;
 import exceptions.DeleteException;
 import exceptions.ReadException;
@@ -8,12 +9,18 @@ import exceptions.UpdateException;
 
 import javax.ejb.EJB;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import ejb.local.UserManagerEJBLocal;
 import encryption.EncriptionManagerFactory;
+import encryption.TokenManager;
 import java.util.Base64;
 
 // ... (Previous imports and class-level comments)
@@ -33,6 +40,11 @@ public class UserREST {
      */
     private static final Logger LOGGER = Logger.getLogger("UserREST");
 
+    /**
+     * Number of users read by each database call of the user stream.
+     */
+    private static final int STREAM_PAGE_SIZE = 500;
+
     /**
      * EJB for managing User entity CRUD operations.
      */
@@ -90,6 +102,7 @@ public class UserREST {
         try {
             LOGGER.log(Level.INFO, "UserRESTful service: delete User by id={0}.", id);
             ejb.removeUser(id);
+            TokenManager.getInstance().revokeUser(id);
         } catch (DeleteException ex) {
             LOGGER.log(Level.SEVERE, "UserRESTful service: Exception deleting user by id, {0}", ex.getMessage());
             throw new InternalServerErrorException(ex);
@@ -118,25 +131,56 @@ public class UserREST {
     }
 
     /**
-     * Retrieves all Users.
+     * Retrieves all Users in their public view, without passwords, so no
+     * encryption is involved.
      *
-     * @return A List of {@link User} objects representing all users.
+     * @return A List of {@link UserSummary} objects representing all users.
      * @throws InternalServerErrorException If there is any Exception during
      * processing.
      */
     @GET
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public List<User> findAllUsers() {
+    public List<UserSummary> findAllUsers() {
 
         try {
             LOGGER.log(Level.INFO, "UserRESTful service: find all users.");
-            return ejb.findAllUsers();
+            return ejb.findUserSummaries();
         } catch (ReadException ex) {
             LOGGER.log(Level.SEVERE, "UserRESTful service: Exception reading all users, {0}", ex.getMessage());
             throw new InternalServerErrorException(ex);
         }
     }
 
+    /**
+     * Streams all Users in their public view, like {@link #findAllUsers()}.
+     * The users are read in pages by ID, each in a short call of its own, and
+     * written as each page arrives. Only one page is held in memory, no
+     * transaction nor connection stays open while the client reads, and no
+     * password is read nor encrypted.
+     *
+     * @param request The current request, used to negotiate the
+     * representation.
+     * @return The streamed list of {@link UserSummary} objects.
+     */
+    @GET
+    @Path("stream")
+    @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
+    public Response streamAllUsers(@Context Request request) {
+        LOGGER.log(Level.INFO, "UserRESTful service: stream all users.");
+        Variant variant = EntityTags.selectVariant(request);
+        return EntityTags.vary(Response.ok(StreamingLists.<UserSummary>of(variant, "users", consumer -> {
+            Integer after = null;
+            List<UserSummary> page;
+            do {
+                page = ejb.findUserSummariesAfter(after, STREAM_PAGE_SIZE);
+                page.forEach(consumer);
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == STREAM_PAGE_SIZE);
+        }), variant)).build();
+    }
+
     /**
      * Retrieves a User by its username.
      *
@@ -161,19 +205,21 @@ public class UserREST {
     /**
      * Retrieves Users by their active status.
      *
+     * The Users are returned in their public view, without passwords.
+     *
      * @param active The active status of the Users to be retrieved.
-     * @return A List of {@link User} objects representing users with the given
-     * active status.
+     * @return A List of {@link UserSummary} objects representing users with
+     * the given active status.
      * @throws InternalServerErrorException If there is any Exception during
      * processing.
      */
     @GET
     @Path("active/{active}")
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public List<User> findUserByActive(@PathParam("active") Boolean active) {
+    public List<UserSummary> findUserByActive(@PathParam("active") Boolean active) {
         try {
             LOGGER.log(Level.INFO, "UserRESTful service: find users by active status {0}.", active);
-            return ejb.findUserByActive(active);
+            return ejb.findUserSummariesByActive(active);
         } catch (ReadException ex) {
             LOGGER.log(Level.SEVERE, "UserRESTful service: Exception reading users by active status, {0}",
                     ex.getMessage());
@@ -182,7 +228,9 @@ public class UserREST {
     }
 
     /**
-     * Signs in a User using XML data.
+     * Signs in a User using XML data. The response carries an access token in
+     * its X-Auth-Token header, to be sent back as a Bearer token instead of
+     * the credentials.
      *
      * @param user The {@link User} object containing the user data for sign-in.
      * @return The signed-in {@link User} object.
@@ -193,16 +241,36 @@ public class UserREST {
     @Path("signin")
     @Consumes({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
     @Produces({MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON})
-    public User signIn(User user) {
+    public Response signIn(User user) {
         try {
             LOGGER.info("UserRESTful service: Signing in user.");
-            return User.getInnerUser(ejb.signIn(user.getUsername(), user.getPassword()));
+            User signedIn = User.getInnerUser(ejb.signIn(user.getUsername(), user.getPassword()));
+            return Response.ok(signedIn)
+                    .header(TokenFilter.TOKEN_HEADER,
+                            TokenManager.getInstance().issue(signedIn.getId(), signedIn.getUserType()))
+                    .build();
         } catch (ReadException ex) {
             LOGGER.log(Level.SEVERE, "UserRESTful service: Exception signing in user, {0}", ex.getMessage());
             throw new InternalServerErrorException(ex);
         }
     }
 
+    /**
+     * Signs out the User of the access token sent in the Authorization
+     * header, revoking the token.
+     *
+     * @param authorization The Authorization header, with a Bearer token.
+     * @throws NotAuthorizedException If the request carries no valid token.
+     */
+    @POST
+    @Path("signout")
+    public void signOut(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization) {
+        LOGGER.info("UserRESTful service: Signing out user.");
+        if (!TokenManager.getInstance().revoke(TokenFilter.getToken(authorization))) {
+            throw new NotAuthorizedException(TokenFilter.BEARER.trim());
+        }
+    }
+
 //   
 //      Updates the password of a User by ID.
 //     
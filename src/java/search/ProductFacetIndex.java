@@ -0,0 +1,387 @@
+package search;
+
+import entities.ProductSummary;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index for filtering products by tag, supplier and price range
+ * and counting them per tag and supplier. Product IDs are used as ordinals:
+ * every tag and supplier keeps a {@link RoaringBitmap} of the IDs of its
+ * products, and prices are kept as a primitive column sorted by price, so a
+ * range is two binary searches.
+ *
+ * Filters are intersections of bitmaps, and the count of a facet value is
+ * the cardinality of the intersection of its bitmap with the products
+ * matching the other filters, so selecting a tag still shows how many
+ * products every other tag has.
+ *
+ * The index can be read by many threads at once; changes take a write lock.
+ *
+ * @author Alexander Epelde
+ */
+public class ProductFacetIndex {
+
+    /**
+     * Lock protecting every field below.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Every indexed product.
+     */
+    private RoaringBitmap all = new RoaringBitmap();
+
+    /**
+     * Products of each tag.
+     */
+    private final Map<Integer, RoaringBitmap> byTag = new HashMap<>();
+
+    /**
+     * Products of each supplier.
+     */
+    private final Map<Integer, RoaringBitmap> bySupplier = new HashMap<>();
+
+    /**
+     * Prices of the products that have one, sorted.
+     */
+    private double[] prices = new double[0];
+
+    /**
+     * Product IDs, in the order of {@link #prices}.
+     */
+    private int[] priceIds = new int[0];
+
+    /**
+     * Number of entries of the price column.
+     */
+    private int priceCount;
+
+    /**
+     * Result of a facet query.
+     */
+    public static final class Result {
+
+        private final int[] productIds;
+        private final Map<Integer, Integer> tagCounts;
+        private final Map<Integer, Integer> supplierCounts;
+
+        Result(int[] productIds, Map<Integer, Integer> tagCounts, Map<Integer, Integer> supplierCounts) {
+            this.productIds = productIds;
+            this.tagCounts = tagCounts;
+            this.supplierCounts = supplierCounts;
+        }
+
+        /**
+         * Gets the IDs of the matching products.
+         *
+         * @return The product IDs, ascending.
+         */
+        public int[] getProductIds() {
+            return productIds;
+        }
+
+        /**
+         * Gets the number of products of each tag matching every filter but
+         * the tag one.
+         *
+         * @return The counts by tag ID, only for tags with products.
+         */
+        public Map<Integer, Integer> getTagCounts() {
+            return tagCounts;
+        }
+
+        /**
+         * Gets the number of products of each supplier matching every filter
+         * but the supplier one.
+         *
+         * @return The counts by supplier ID, only for suppliers with products.
+         */
+        public Map<Integer, Integer> getSupplierCounts() {
+            return supplierCounts;
+        }
+    }
+
+    /**
+     * Replaces the content of the index with the given products.
+     *
+     * @param products Every product to index.
+     */
+    public void rebuild(Collection<ProductSummary> products) {
+        lock.writeLock().lock();
+        try {
+            all = new RoaringBitmap();
+            byTag.clear();
+            bySupplier.clear();
+            prices = new double[products.size()];
+            priceIds = new int[products.size()];
+            priceCount = 0;
+            for (ProductSummary product : products) {
+                all.add(product.getProduct_id());
+                addToGroups(product);
+                if (product.getPrice() != null) {
+                    prices[priceCount] = product.getPrice();
+                    priceIds[priceCount] = product.getProduct_id();
+                    priceCount++;
+                }
+            }
+            sortPriceColumn();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates a product.
+     *
+     * @param old The previous state of the product, or null if it is new.
+     * @param product The new state of the product.
+     */
+    public void update(ProductSummary old, ProductSummary product) {
+        lock.writeLock().lock();
+        try {
+            if (old != null) {
+                removeFromGroups(old);
+                removePrice(old);
+            }
+            all.add(product.getProduct_id());
+            addToGroups(product);
+            addPrice(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product.
+     *
+     * @param old The last state of the product.
+     */
+    public void remove(ProductSummary old) {
+        lock.writeLock().lock();
+        try {
+            all.remove(old.getProduct_id());
+            removeFromGroups(old);
+            removePrice(old);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Filters the products and counts them per tag and supplier. Null
+     * filters are not applied.
+     *
+     * @param tagId The ID of the tag the products must have.
+     * @param supplierId The ID of the supplier the products must have.
+     * @param minPrice The lowest price, inclusive.
+     * @param maxPrice The highest price, inclusive.
+     * @return The matching products and the facet counts.
+     */
+    public Result query(Integer tagId, Integer supplierId, Double minPrice, Double maxPrice) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap priceFilter = minPrice == null && maxPrice == null ? null : priceRange(minPrice, maxPrice);
+            RoaringBitmap tagFilter = tagId == null ? null : orEmpty(byTag.get(tagId));
+            RoaringBitmap supplierFilter = supplierId == null ? null : orEmpty(bySupplier.get(supplierId));
+            RoaringBitmap tagBase = intersect(all, supplierFilter, priceFilter);
+            RoaringBitmap supplierBase = intersect(all, tagFilter, priceFilter);
+            RoaringBitmap matches = tagFilter == null ? tagBase : tagBase.and(tagFilter);
+            return new Result(matches.toArray(), counts(byTag, tagBase), counts(bySupplier, supplierBase));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersects a set with the filters that are not null.
+     */
+    private static RoaringBitmap intersect(RoaringBitmap base, RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = base;
+        if (first != null) {
+            result = result.and(first);
+        }
+        if (second != null) {
+            result = result.and(second);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the products of every group within a set.
+     */
+    private static Map<Integer, Integer> counts(Map<Integer, RoaringBitmap> groups, RoaringBitmap within) {
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<Integer, RoaringBitmap> entry : groups.entrySet()) {
+            int count = entry.getValue().andCardinality(within);
+            if (count > 0) {
+                counts.put(entry.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Builds the set of products whose price is within a range.
+     */
+    private RoaringBitmap priceRange(Double minPrice, Double maxPrice) {
+        int from = minPrice == null ? 0 : lowerBound(minPrice);
+        int to = maxPrice == null ? priceCount : upperBound(maxPrice);
+        if (from >= to) {
+            return new RoaringBitmap();
+        }
+        int[] ids = Arrays.copyOfRange(priceIds, from, to);
+        Arrays.sort(ids);
+        return RoaringBitmap.ofSorted(ids, ids.length);
+    }
+
+    /**
+     * First position whose price is not lower than the given one.
+     */
+    private int lowerBound(double price) {
+        int low = 0;
+        int high = priceCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First position whose price is higher than the given one.
+     */
+    private int upperBound(double price) {
+        int low = 0;
+        int high = priceCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] <= price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets a group, or an empty set if there is none.
+     */
+    private static RoaringBitmap orEmpty(RoaringBitmap bitmap) {
+        return bitmap == null ? new RoaringBitmap() : bitmap;
+    }
+
+    /**
+     * Adds a product to the sets of its tag and supplier.
+     */
+    private void addToGroups(ProductSummary product) {
+        if (product.getTag() != null) {
+            group(byTag, product.getTag().getTag_id()).add(product.getProduct_id());
+        }
+        if (product.getSupplier() != null) {
+            group(bySupplier, product.getSupplier().getSupplier_id()).add(product.getProduct_id());
+        }
+    }
+
+    /**
+     * Removes a product from the sets of its tag and supplier.
+     */
+    private void removeFromGroups(ProductSummary product) {
+        if (product.getTag() != null) {
+            ungroup(byTag, product.getTag().getTag_id(), product.getProduct_id());
+        }
+        if (product.getSupplier() != null) {
+            ungroup(bySupplier, product.getSupplier().getSupplier_id(), product.getProduct_id());
+        }
+    }
+
+    /**
+     * Gets the set of a group, creating it if needed.
+     */
+    private static RoaringBitmap group(Map<Integer, RoaringBitmap> groups, Integer key) {
+        RoaringBitmap bitmap = groups.get(key);
+        if (bitmap == null) {
+            bitmap = new RoaringBitmap();
+            groups.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Removes a product from the set of a group, dropping the set once empty.
+     */
+    private static void ungroup(Map<Integer, RoaringBitmap> groups, Integer key, int productId) {
+        RoaringBitmap bitmap = groups.get(key);
+        if (bitmap != null) {
+            bitmap.remove(productId);
+            if (bitmap.cardinality() == 0) {
+                groups.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Inserts a product in the price column, keeping it sorted.
+     */
+    private void addPrice(ProductSummary product) {
+        if (product.getPrice() == null) {
+            return;
+        }
+        if (priceCount == prices.length) {
+            prices = Arrays.copyOf(prices, Math.max(16, priceCount * 2));
+            priceIds = Arrays.copyOf(priceIds, prices.length);
+        }
+        int index = upperBound(product.getPrice());
+        System.arraycopy(prices, index, prices, index + 1, priceCount - index);
+        System.arraycopy(priceIds, index, priceIds, index + 1, priceCount - index);
+        prices[index] = product.getPrice();
+        priceIds[index] = product.getProduct_id();
+        priceCount++;
+    }
+
+    /**
+     * Removes a product from the price column.
+     */
+    private void removePrice(ProductSummary product) {
+        if (product.getPrice() == null) {
+            return;
+        }
+        int to = upperBound(product.getPrice());
+        for (int i = lowerBound(product.getPrice()); i < to; i++) {
+            if (priceIds[i] == product.getProduct_id()) {
+                System.arraycopy(prices, i + 1, prices, i, priceCount - i - 1);
+                System.arraycopy(priceIds, i + 1, priceIds, i, priceCount - i - 1);
+                priceCount--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sorts the price column after a rebuild.
+     */
+    private void sortPriceColumn() {
+        Integer[] order = new Integer[priceCount];
+        for (int i = 0; i < priceCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(prices[a], prices[b]));
+        double[] sortedPrices = new double[prices.length];
+        int[] sortedIds = new int[priceIds.length];
+        for (int i = 0; i < priceCount; i++) {
+            sortedPrices[i] = prices[order[i]];
+            sortedIds[i] = priceIds[order[i]];
+        }
+        prices = sortedPrices;
+        priceIds = sortedIds;
+    }
+}
@@ -0,0 +1,544 @@
+package search;
+
+import entities.ProductSummary;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory full-text index of the products, ranked with BM25. It indexes the
+ * brand, model, description, other information and product number of every
+ * product.
+ *
+ * Every product gets a dense ordinal, and every term keeps its postings as two
+ * primitive arrays sorted by ordinal: the ordinals of the products containing
+ * the term and the number of times each one contains it. A search walks the
+ * postings of the query terms, accumulates the scores in an open-addressing
+ * table sized to those postings and keeps the best ones in a bounded heap,
+ * so it allocates nothing per posting and nothing that outlives it.
+ *
+ * The fuzzy search tolerates typos: query terms that are not in the index
+ * are replaced by the closest terms found through a {@link TrigramIndex} of
+ * the vocabulary, whose scores are lowered by the number of edits.
+ *
+ * The index can be searched by many threads at once; changes take a write
+ * lock and are applied one product at a time.
+ *
+ * @author Alexander Epelde
+ */
+public class ProductSearchIndex {
+
+    /**
+     * BM25 term frequency saturation.
+     */
+    private static final float K1 = 1.2f;
+
+    /**
+     * BM25 document length normalization.
+     */
+    private static final float B = 0.75f;
+
+    /**
+     * Number of close terms a misspelled query term is replaced by.
+     */
+    private static final int MAX_EXPANSIONS = 3;
+
+    /**
+     * Lock protecting every field below.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Postings by term.
+     */
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    /**
+     * Trigrams of every term of {@link #postings}.
+     */
+    private final TrigramIndex vocabulary = new TrigramIndex();
+
+    /**
+     * Ordinal by product ID.
+     */
+    private final Map<Integer, Integer> ordinals = new HashMap<>();
+
+    /**
+     * Product ID by ordinal.
+     */
+    private int[] productIds = new int[0];
+
+    /**
+     * Number of terms of each product, by ordinal.
+     */
+    private int[] lengths = new int[0];
+
+    /**
+     * Distinct terms of each product, by ordinal, needed to remove it.
+     */
+    private String[][] documentTerms = new String[0][];
+
+    /**
+     * Ordinals released by removed products, reused before new ones.
+     */
+    private int[] freeOrdinals = new int[16];
+
+    /**
+     * Number of entries of {@link #freeOrdinals}.
+     */
+    private int freeCount;
+
+    /**
+     * Number of ordinals ever handed out.
+     */
+    private int ordinalCount;
+
+    /**
+     * Number of indexed products.
+     */
+    private int documentCount;
+
+    /**
+     * Sum of the lengths of every indexed product.
+     */
+    private long totalLength;
+
+    /**
+     * Replaces the content of the index with the given products.
+     *
+     * @param products Every product to index.
+     */
+    public void rebuild(Collection<ProductSummary> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            vocabulary.clear();
+            ordinals.clear();
+            productIds = new int[products.size()];
+            lengths = new int[products.size()];
+            documentTerms = new String[products.size()][];
+            freeCount = 0;
+            ordinalCount = 0;
+            documentCount = 0;
+            totalLength = 0;
+            for (ProductSummary product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a product, replacing its previous version if there is one.
+     *
+     * @param product The product to index.
+     */
+    public void add(ProductSummary product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getProduct_id());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param productId The ID of the product.
+     */
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of indexed products.
+     *
+     * @return The number of products.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the products matching any term of a query, best first.
+     *
+     * @param query The text to search.
+     * @param limit The maximum number of results.
+     * @return The IDs of the best matching products, by decreasing score.
+     */
+    public int[] search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        Map<String, Float> weights = new LinkedHashMap<>();
+        for (String term : queryTerms) {
+            weights.put(term, 1f);
+        }
+        lock.readLock().lock();
+        try {
+            return score(weights, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the products matching any term of a query, best first,
+     * tolerating typos. A query term that is not in the index is replaced by
+     * the closest indexed terms: none for terms of up to two characters, one
+     * edit away for terms of up to five and two edits away for longer ones.
+     * Each edit divides the score of the term.
+     *
+     * @param query The text to search.
+     * @param limit The maximum number of results.
+     * @return The IDs of the best matching products, by decreasing score.
+     */
+    public int[] fuzzySearch(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, Float> weights = new LinkedHashMap<>();
+            for (String term : queryTerms) {
+                if (postings.containsKey(term)) {
+                    weights.put(term, 1f);
+                    continue;
+                }
+                for (TrigramIndex.Match match : vocabulary.closest(term, maxEdits(term), MAX_EXPANSIONS)) {
+                    float weight = 1f / (1 + match.getDistance());
+                    Float previous = weights.get(match.getTerm());
+                    if (previous == null || previous < weight) {
+                        weights.put(match.getTerm(), weight);
+                    }
+                }
+            }
+            return score(weights, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of typos tolerated in a query term, by its length.
+     */
+    private static int maxEdits(String term) {
+        if (term.length() <= 2) {
+            return 0;
+        }
+        return term.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Scores the products containing any of the given terms, each one with
+     * its BM25 score multiplied by the weight of the term. The read lock must
+     * be held.
+     *
+     * @param weights The weight of every term.
+     * @param limit The maximum number of results.
+     * @return The IDs of the best matching products, by decreasing score.
+     */
+    private int[] score(Map<String, Float> weights, int limit) {
+        if (documentCount == 0 || weights.isEmpty()) {
+            return new int[0];
+        }
+        int candidates = 0;
+        for (String term : weights.keySet()) {
+            PostingList list = postings.get(term);
+            if (list != null) {
+                candidates += list.size;
+            }
+        }
+        if (candidates == 0) {
+            return new int[0];
+        }
+        Scores scores = new Scores(Math.min(candidates, documentCount));
+        float averageLength = (float) totalLength / documentCount;
+        for (Map.Entry<String, Float> term : weights.entrySet()) {
+            PostingList list = postings.get(term.getKey());
+            if (list == null) {
+                continue;
+            }
+            float idf = term.getValue()
+                    * (float) Math.log(1 + (documentCount - list.size + 0.5) / (list.size + 0.5));
+            for (int i = 0; i < list.size; i++) {
+                int ordinal = list.ordinals[i];
+                int frequency = list.frequencies[i];
+                float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                scores.add(ordinal, idf * frequency * (K1 + 1) / (frequency + norm));
+            }
+        }
+        return topProducts(scores, limit);
+    }
+
+    /**
+     * Picks the best scored products of a search. The heap holds slots of
+     * the score table.
+     */
+    private int[] topProducts(Scores scores, int limit) {
+        int k = Math.min(limit, scores.size);
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int i = 0; i < scores.size; i++) {
+            int slot = scores.used[i];
+            if (heapSize < k) {
+                heap[heapSize++] = slot;
+                siftUp(heap, heapSize - 1, scores);
+            } else if (better(slot, heap[0], scores)) {
+                heap[0] = slot;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+        int[] result = new int[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = productIds[scores.ordinal(heap[0])];
+            heap[0] = heap[i];
+            siftDown(heap, i, scores);
+        }
+        return result;
+    }
+
+    /**
+     * Tells if the product of a slot ranks before the one of another: higher
+     * score first, lower ID first on ties.
+     */
+    private boolean better(int a, int b, Scores scores) {
+        float scoreA = scores.scores[a];
+        float scoreB = scores.scores[b];
+        return scoreA != scoreB ? scoreA > scoreB
+                : productIds[scores.ordinal(a)] < productIds[scores.ordinal(b)];
+    }
+
+    /**
+     * Moves up an entry of the min-heap of best products.
+     */
+    private void siftUp(int[] heap, int index, Scores scores) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(heap[parent], slot, scores)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    /**
+     * Moves down the root of the min-heap of best products.
+     */
+    private void siftDown(int[] heap, int size, Scores scores) {
+        if (size == 0) {
+            return;
+        }
+        int slot = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && better(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!better(slot, heap[child], scores)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    /**
+     * Adds a product that is not in the index.
+     */
+    private void addDocument(ProductSummary product) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String field : new String[]{product.getBrand(), product.getModel(), product.getDescription(),
+            product.getOtherInfo(), product.getProductNumber()}) {
+            for (String term : Tokenizer.tokenize(field)) {
+                Integer frequency = frequencies.get(term);
+                frequencies.put(term, frequency == null ? 1 : frequency + 1);
+                length++;
+            }
+        }
+        int ordinal = newOrdinal();
+        ordinals.put(product.getProduct_id(), ordinal);
+        productIds[ordinal] = product.getProduct_id();
+        lengths[ordinal] = length;
+        documentTerms[ordinal] = frequencies.keySet().toArray(new String[frequencies.size()]);
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            PostingList list = postings.get(entry.getKey());
+            if (list == null) {
+                list = new PostingList();
+                postings.put(entry.getKey(), list);
+                vocabulary.add(entry.getKey());
+            }
+            list.put(ordinal, entry.getValue());
+        }
+        documentCount++;
+        totalLength += length;
+    }
+
+    /**
+     * Removes a product if it is in the index.
+     */
+    private void removeDocument(Integer productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        for (String term : documentTerms[ordinal]) {
+            PostingList list = postings.get(term);
+            list.remove(ordinal);
+            if (list.size == 0) {
+                postings.remove(term);
+                vocabulary.remove(term);
+            }
+        }
+        documentCount--;
+        totalLength -= lengths[ordinal];
+        documentTerms[ordinal] = null;
+        lengths[ordinal] = 0;
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+    }
+
+    /**
+     * Hands out an ordinal, reusing released ones first.
+     */
+    private int newOrdinal() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (ordinalCount == productIds.length) {
+            int capacity = Math.max(16, ordinalCount * 2);
+            productIds = Arrays.copyOf(productIds, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            documentTerms = Arrays.copyOf(documentTerms, capacity);
+        }
+        return ordinalCount++;
+    }
+
+    /**
+     * Postings of a term: parallel arrays of ordinals, sorted, and term
+     * frequencies.
+     */
+    private static final class PostingList {
+
+        private int[] ordinals = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        /**
+         * Adds or replaces the posting of an ordinal.
+         */
+        void put(int ordinal, int frequency) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0) {
+                frequencies[index] = frequency;
+                return;
+            }
+            index = -index - 1;
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            ordinals[index] = ordinal;
+            frequencies[index] = frequency;
+            size++;
+        }
+
+        /**
+         * Removes the posting of an ordinal, if there is one.
+         */
+        void remove(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            size--;
+        }
+    }
+
+    /**
+     * Scores of one search: an open-addressing table from ordinal to score,
+     * sized to the postings of the query rather than to the whole index, and
+     * the list of the slots in use.
+     */
+    private static final class Scores {
+
+        /**
+         * Ordinal plus one of each slot; zero marks a free slot.
+         */
+        private final int[] keys;
+        private final float[] scores;
+        private final int[] used;
+        private final int mask;
+        private int size;
+
+        /**
+         * Creates a table for at most the given number of products, at most
+         * half full.
+         */
+        Scores(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(1, expected)) << 2;
+            keys = new int[capacity];
+            scores = new float[capacity];
+            used = new int[expected];
+            mask = capacity - 1;
+        }
+
+        /**
+         * Adds to the score of an ordinal.
+         */
+        void add(int ordinal, float score) {
+            int hash = ordinal * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != 0 && keys[slot] != ordinal + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = ordinal + 1;
+                used[size++] = slot;
+            }
+            scores[slot] += score;
+        }
+
+        /**
+         * Gets the ordinal of a slot in use.
+         */
+        int ordinal(int slot) {
+            return keys[slot] - 1;
+        }
+    }
+}
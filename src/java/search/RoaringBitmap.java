@@ -0,0 +1,494 @@
+package search;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints in the style of Roaring bitmaps. The
+ * values are split by their 16 high bits into chunks; a chunk with few values
+ * stores them as a sorted char array, and a dense chunk as a 65536 bit
+ * bitmap, so both sparse and dense sets stay small and intersections run
+ * chunk by chunk with word-level operations.
+ *
+ * The class is not thread safe.
+ *
+ * @author Alexander Epelde
+ */
+public final class RoaringBitmap {
+
+    /**
+     * Largest cardinality of an array chunk; past it a bitmap is smaller.
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    /**
+     * High 16 bits of each chunk, sorted.
+     */
+    private char[] keys = new char[4];
+
+    /**
+     * Chunks, in the order of their keys.
+     */
+    private Container[] containers = new Container[4];
+
+    /**
+     * Number of chunks.
+     */
+    private int size;
+
+    /**
+     * Builds a bitmap from values sorted in ascending order.
+     *
+     * @param values The sorted values.
+     * @param length The number of values to take from the array.
+     * @return The bitmap.
+     */
+    public static RoaringBitmap ofSorted(int[] values, int length) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        int i = 0;
+        while (i < length) {
+            char key = (char) (values[i] >>> 16);
+            int end = i;
+            while (end < length && (char) (values[end] >>> 16) == key) {
+                end++;
+            }
+            Container container;
+            if (end - i > ARRAY_MAX) {
+                BitmapContainer dense = new BitmapContainer();
+                for (int j = i; j < end; j++) {
+                    dense.add((char) values[j]);
+                }
+                container = dense;
+            } else {
+                char[] low = new char[end - i];
+                for (int j = i; j < end; j++) {
+                    low[j - i] = (char) values[j];
+                }
+                container = new ArrayContainer(low, low.length);
+            }
+            bitmap.insertContainer(bitmap.size, key, container);
+            i = end;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value The value, not negative.
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) value);
+        } else {
+            ArrayContainer container = new ArrayContainer(new char[4], 0);
+            insertContainer(-index - 1, key, container.add((char) value));
+        }
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param value The value.
+     */
+    public void remove(int value) {
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) value);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    /**
+     * Tells if a value is in the set.
+     *
+     * @param value The value.
+     * @return True if the value is in the set.
+     */
+    public boolean contains(int value) {
+        int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Gets the number of values of the set.
+     *
+     * @return The cardinality.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Intersects this set with another one.
+     *
+     * @param other The other set.
+     * @return A new set with the values of both.
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.insertContainer(result.size, keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the values of the intersection of this set with another one,
+     * without building it.
+     *
+     * @param other The other set.
+     * @return The cardinality of the intersection.
+     */
+    public int andCardinality(RoaringBitmap other) {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                cardinality += containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    /**
+     * Gets the values of the set in ascending order.
+     *
+     * @return The values.
+     */
+    public int[] toArray() {
+        int[] values = new int[cardinality()];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            position = containers[i].copyTo(values, position, keys[i] << 16);
+        }
+        return values;
+    }
+
+    /**
+     * Binary search of a chunk key.
+     */
+    private int indexOf(char key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else if (keys[mid] > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Inserts a chunk at a position.
+     */
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    /**
+     * Set of the 16 low bits of the values of a chunk. Changes may return a
+     * different container when the representation has to change.
+     */
+    private abstract static class Container {
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container and(Container other);
+
+        abstract int andCardinality(Container other);
+
+        /**
+         * Copies the values, with the given high bits, into an array.
+         *
+         * @return The position after the last copied value.
+         */
+        abstract int copyTo(int[] values, int position, int high);
+    }
+
+    /**
+     * Sparse chunk: sorted array of values.
+     */
+    private static final class ArrayContainer extends Container {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                BitmapContainer dense = BitmapContainer.of(this);
+                dense.add(value);
+                return dense;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        int copyTo(int[] target, int position, int high) {
+            for (int i = 0; i < cardinality; i++) {
+                target[position++] = high | values[i];
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Dense chunk: one bit per possible value.
+     */
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer() {
+            this(new long[1024], 0);
+        }
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        static BitmapContainer of(ArrayContainer array) {
+            BitmapContainer dense = new BitmapContainer();
+            for (int i = 0; i < array.cardinality; i++) {
+                dense.add(array.values[i]);
+            }
+            return dense;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            words[value >>> 6] = after;
+            if (before != after) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            words[value >>> 6] = after;
+            if (before != after) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArrayContainer() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer dense = (BitmapContainer) other;
+            long[] result = new long[1024];
+            int count = 0;
+            for (int i = 0; i < 1024; i++) {
+                result[i] = words[i] & dense.words[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer container = new BitmapContainer(result, count);
+            return count <= ARRAY_MAX ? container.toArrayContainer() : container;
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.andCardinality(this);
+            }
+            BitmapContainer dense = (BitmapContainer) other;
+            int count = 0;
+            for (int i = 0; i < 1024; i++) {
+                count += Long.bitCount(words[i] & dense.words[i]);
+            }
+            return count;
+        }
+
+        @Override
+        int copyTo(int[] target, int position, int high) {
+            for (int i = 0; i < 1024; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    target[position++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return position;
+        }
+
+        /**
+         * Converts the chunk back to a sorted array.
+         */
+        private ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for (int i = 0; i < 1024; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
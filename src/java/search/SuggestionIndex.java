@@ -0,0 +1,471 @@
+package search;
+
+import entities.ProductSummary;
+import entities.Suggestion;
+import entities.SuggestionField;
+import entities.Supplier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory type-ahead index of the product brands, product models and
+ * supplier names, ranked by the number of products having them.
+ *
+ * The counts are updated on every change, and the lookup structure is an
+ * immutable radix trie laid out in primitive arrays. The catalog rebuilds it
+ * through {@link #publish()} once per committed change, so lookups never
+ * build it nor wait for the writers. Every node of the trie keeps its best
+ * completions precomputed, so a lookup walks the characters of the prefix
+ * and copies a slice of an array, without locking.
+ *
+ * @author Alexander Epelde
+ */
+public class SuggestionIndex {
+
+    /**
+     * Number of completions kept by every node of the trie.
+     */
+    public static final int MAX_SUGGESTIONS = 10;
+
+    /**
+     * Number of products of each brand.
+     */
+    private final Map<String, Integer> brands = new HashMap<>();
+
+    /**
+     * Number of products of each model.
+     */
+    private final Map<String, Integer> models = new HashMap<>();
+
+    /**
+     * Name of each supplier.
+     */
+    private final Map<Integer, String> supplierNames = new HashMap<>();
+
+    /**
+     * Number of products of each supplier.
+     */
+    private final Map<Integer, Integer> supplierProducts = new HashMap<>();
+
+    /**
+     * Trie of the counts as of the last {@link #publish()}.
+     */
+    private volatile CompactTrie trie = CompactTrie.build(Collections.<Suggestion>emptyList());
+
+    /**
+     * Whether the counts changed since the trie was built.
+     */
+    private boolean stale;
+
+    /**
+     * Replaces the content of the index.
+     *
+     * @param products Every product.
+     * @param suppliers Every supplier.
+     */
+    public synchronized void rebuild(Collection<ProductSummary> products, Collection<Supplier> suppliers) {
+        brands.clear();
+        models.clear();
+        supplierNames.clear();
+        supplierProducts.clear();
+        for (Supplier supplier : suppliers) {
+            supplierNames.put(supplier.getSupplier_id(), supplier.getName());
+        }
+        for (ProductSummary product : products) {
+            count(product, 1);
+        }
+        stale = true;
+        publish();
+    }
+
+    /**
+     * Updates a product.
+     *
+     * @param old The previous state of the product, or null if it is new.
+     * @param product The new state of the product.
+     */
+    public synchronized void update(ProductSummary old, ProductSummary product) {
+        if (old != null) {
+            count(old, -1);
+        }
+        count(product, 1);
+        stale = true;
+    }
+
+    /**
+     * Removes a product.
+     *
+     * @param old The last state of the product.
+     */
+    public synchronized void remove(ProductSummary old) {
+        count(old, -1);
+        stale = true;
+    }
+
+    /**
+     * Adds or renames a supplier.
+     *
+     * @param supplier The supplier.
+     */
+    public synchronized void putSupplier(Supplier supplier) {
+        supplierNames.put(supplier.getSupplier_id(), supplier.getName());
+        stale = true;
+    }
+
+    /**
+     * Removes a supplier. Its products must be removed on their own.
+     *
+     * @param supplierId The ID of the supplier.
+     */
+    public synchronized void removeSupplier(Integer supplierId) {
+        supplierNames.remove(supplierId);
+        supplierProducts.remove(supplierId);
+        stale = true;
+    }
+
+    /**
+     * Builds the trie of the current counts and makes the lookups use it, if
+     * the counts changed since it was last built. Meant to be called once
+     * after a batch of changes, off the lookup path.
+     */
+    public synchronized void publish() {
+        if (stale) {
+            trie = CompactTrie.build(candidates());
+            stale = false;
+        }
+    }
+
+    /**
+     * Gets the most popular completions of a prefix. The prefix is compared
+     * without case nor diacritics.
+     *
+     * @param prefix The typed text.
+     * @param limit The maximum number of completions, at most
+     * {@link #MAX_SUGGESTIONS}.
+     * @return The completions, most popular first, as of the last
+     * {@link #publish()}. They are shared and must not be modified.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return trie.complete(Tokenizer.normalize(prefix), Math.min(limit, MAX_SUGGESTIONS));
+    }
+
+    /**
+     * Adds or subtracts a product from the counts of its brand, model and
+     * supplier.
+     */
+    private void count(ProductSummary product, int delta) {
+        add(brands, product.getBrand(), delta);
+        add(models, product.getModel(), delta);
+        if (product.getSupplier() != null) {
+            add(supplierProducts, product.getSupplier().getSupplier_id(), delta);
+        }
+    }
+
+    /**
+     * Adds to a count, dropping it once it reaches zero.
+     */
+    private static <K> void add(Map<K, Integer> counts, K key, int delta) {
+        if (key == null || (key instanceof String && ((String) key).trim().isEmpty())) {
+            return;
+        }
+        Integer count = counts.get(key);
+        int value = (count == null ? 0 : count) + delta;
+        if (value > 0) {
+            counts.put(key, value);
+        } else {
+            counts.remove(key);
+        }
+    }
+
+    /**
+     * Lists every completion with its weight.
+     */
+    private List<Suggestion> candidates() {
+        List<Suggestion> candidates = new ArrayList<>(brands.size() + models.size() + supplierNames.size());
+        for (Map.Entry<String, Integer> brand : brands.entrySet()) {
+            candidates.add(new Suggestion(brand.getKey(), SuggestionField.BRAND, brand.getValue()));
+        }
+        for (Map.Entry<String, Integer> model : models.entrySet()) {
+            candidates.add(new Suggestion(model.getKey(), SuggestionField.MODEL, model.getValue()));
+        }
+        for (Map.Entry<Integer, String> supplier : supplierNames.entrySet()) {
+            if (supplier.getValue() != null && !supplier.getValue().trim().isEmpty()) {
+                Integer products = supplierProducts.get(supplier.getKey());
+                candidates.add(new Suggestion(supplier.getValue(), SuggestionField.SUPPLIER,
+                        products == null ? 0 : products));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Immutable radix trie over the normalized completions. The completions
+     * are sorted by key, so every node covers a contiguous range of them;
+     * nodes are numbered breadth first, so the children of a node are
+     * contiguous too, and an edge label is read from the key of the first
+     * completion below it instead of being stored.
+     */
+    private static final class CompactTrie {
+
+        /**
+         * Normalized keys of the completions, sorted.
+         */
+        private final String[] keys;
+
+        /**
+         * Completions, in the order of {@link #keys}.
+         */
+        private final Suggestion[] entries;
+
+        /**
+         * First completion below each node.
+         */
+        private final int[] lo;
+
+        /**
+         * Length of the prefix each node stands for.
+         */
+        private final int[] depth;
+
+        /**
+         * First child of each node.
+         */
+        private final int[] childStart;
+
+        /**
+         * Number of children of each node.
+         */
+        private final int[] childCount;
+
+        /**
+         * Start of the best completions of each node in {@link #top}; the
+         * ones of node {@code n} end where those of {@code n + 1} start.
+         */
+        private final int[] topStart;
+
+        /**
+         * Best completions of every node, best first.
+         */
+        private final int[] top;
+
+        private CompactTrie(String[] keys, Suggestion[] entries, int[] lo, int[] depth, int[] childStart,
+                int[] childCount, int[] topStart, int[] top) {
+            this.keys = keys;
+            this.entries = entries;
+            this.lo = lo;
+            this.depth = depth;
+            this.childStart = childStart;
+            this.childCount = childCount;
+            this.topStart = topStart;
+            this.top = top;
+        }
+
+        /**
+         * Builds the trie of a list of completions.
+         */
+        static CompactTrie build(List<Suggestion> candidates) {
+            int n = candidates.size();
+            final String[] normalized = new String[n];
+            for (int i = 0; i < n; i++) {
+                normalized[i] = Tokenizer.normalize(candidates.get(i).getText());
+            }
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            sortByKey(order, normalized);
+            String[] keys = new String[n];
+            Suggestion[] entries = new Suggestion[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = normalized[order[i]];
+                entries[i] = candidates.get(order[i]);
+            }
+            // A radix trie has at most one inner node per leaf besides the root.
+            int capacity = 2 * n + 1;
+            int[] lo = new int[capacity];
+            int[] hi = new int[capacity];
+            int[] depth = new int[capacity];
+            int[] childStart = new int[capacity];
+            int[] childCount = new int[capacity];
+            hi[0] = n;
+            int nodeCount = 1;
+            for (int node = 0; node < nodeCount; node++) {
+                int d = depth[node];
+                int p = lo[node];
+                while (p < hi[node] && keys[p].length() == d) {
+                    p++;
+                }
+                childStart[node] = nodeCount;
+                while (p < hi[node]) {
+                    char c = keys[p].charAt(d);
+                    int q = p + 1;
+                    while (q < hi[node] && keys[q].charAt(d) == c) {
+                        q++;
+                    }
+                    lo[nodeCount] = p;
+                    hi[nodeCount] = q;
+                    depth[nodeCount] = commonPrefix(keys[p], keys[q - 1]);
+                    nodeCount++;
+                    p = q;
+                }
+                childCount[node] = nodeCount - childStart[node];
+            }
+            int[] rank = rank(entries);
+            int[] byRank = new int[n];
+            for (int i = 0; i < n; i++) {
+                byRank[rank[i]] = i;
+            }
+            int[][] best = new int[nodeCount][];
+            int[] merged = new int[MAX_SUGGESTIONS];
+            // Children are numbered after their parent, so walk backwards.
+            for (int node = nodeCount - 1; node >= 0; node--) {
+                int end = childCount[node] == 0 ? hi[node] : lo[childStart[node]];
+                int needed = end - lo[node] + MAX_SUGGESTIONS * childCount[node];
+                if (merged.length < needed) {
+                    merged = new int[Math.max(needed, 2 * merged.length)];
+                }
+                // Ranks are unique, so sorting them sorts the completions.
+                int size = 0;
+                for (int i = lo[node]; i < end; i++) {
+                    merged[size++] = rank[i];
+                }
+                for (int child = childStart[node]; child < childStart[node] + childCount[node]; child++) {
+                    for (int entry : best[child]) {
+                        merged[size++] = rank[entry];
+                    }
+                }
+                Arrays.sort(merged, 0, size);
+                best[node] = new int[Math.min(MAX_SUGGESTIONS, size)];
+                for (int i = 0; i < best[node].length; i++) {
+                    best[node][i] = byRank[merged[i]];
+                }
+            }
+            int[] topStart = new int[nodeCount + 1];
+            for (int node = 0; node < nodeCount; node++) {
+                topStart[node + 1] = topStart[node] + best[node].length;
+            }
+            int[] top = new int[topStart[nodeCount]];
+            for (int node = 0; node < nodeCount; node++) {
+                System.arraycopy(best[node], 0, top, topStart[node], best[node].length);
+            }
+            return new CompactTrie(keys, entries, Arrays.copyOf(lo, nodeCount), Arrays.copyOf(depth, nodeCount),
+                    Arrays.copyOf(childStart, nodeCount), Arrays.copyOf(childCount, nodeCount), topStart, top);
+        }
+
+        /**
+         * Stable merge sort of indexes by the keys they point to.
+         */
+        private static void sortByKey(int[] order, String[] keys) {
+            int[] buffer = new int[order.length];
+            for (int width = 1; width < order.length; width *= 2) {
+                for (int from = 0; from < order.length - width; from += 2 * width) {
+                    int mid = from + width;
+                    int to = Math.min(from + 2 * width, order.length);
+                    System.arraycopy(order, from, buffer, from, to - from);
+                    int i = from;
+                    int j = mid;
+                    int k = from;
+                    while (i < mid && j < to) {
+                        order[k++] = keys[buffer[j]].compareTo(keys[buffer[i]]) < 0 ? buffer[j++] : buffer[i++];
+                    }
+                    while (i < mid) {
+                        order[k++] = buffer[i++];
+                    }
+                    while (j < to) {
+                        order[k++] = buffer[j++];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Ranks the completions: more products first, then by key and field.
+         * The completions are in key order already, and the ones sharing a
+         * key are in field order, since brands, models and suppliers are
+         * listed in that order, so the position breaks ties. Weight and
+         * position are packed into a long, so the sort runs on primitives.
+         */
+        private static int[] rank(Suggestion[] entries) {
+            long[] order = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                order[i] = (long) (Integer.MAX_VALUE - entries[i].getWeight()) << 32 | i;
+            }
+            Arrays.sort(order);
+            int[] rank = new int[entries.length];
+            for (int i = 0; i < order.length; i++) {
+                rank[(int) order[i]] = i;
+            }
+            return rank;
+        }
+
+        /**
+         * Length of the common prefix of two strings.
+         */
+        private static int commonPrefix(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Gets the best completions of a normalized prefix.
+         */
+        List<Suggestion> complete(String prefix, int limit) {
+            int node = 0;
+            int position = 0;
+            while (true) {
+                int end = Math.min(prefix.length(), depth[node]);
+                for (; position < end; position++) {
+                    if (keys[lo[node]].charAt(position) != prefix.charAt(position)) {
+                        return Collections.emptyList();
+                    }
+                }
+                if (prefix.length() <= depth[node]) {
+                    break;
+                }
+                node = child(node, prefix.charAt(depth[node]));
+                if (node < 0) {
+                    return Collections.emptyList();
+                }
+            }
+            int from = topStart[node];
+            int to = Math.min(topStart[node + 1], from + Math.max(0, limit));
+            List<Suggestion> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                result.add(entries[top[i]]);
+            }
+            return result;
+        }
+
+        /**
+         * Binary search of the child of a node starting with a character.
+         *
+         * @return The child, or -1 if there is none.
+         */
+        private int child(int node, char c) {
+            int d = depth[node];
+            int low = childStart[node];
+            int high = low + childCount[node] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char label = keys[lo[mid]].charAt(d);
+                if (label < c) {
+                    low = mid + 1;
+                } else if (label > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+    }
+}
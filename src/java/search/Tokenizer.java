@@ -0,0 +1,67 @@
+package search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits product text into search terms. Terms are the runs of letters and
+ * digits of the text, lower-cased and without diacritics, so "Cámara" and
+ * "camara" are the same term.
+ *
+ * @author Alexander Epelde
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Splits a text into terms, in the order they appear. Repeated terms are
+     * kept.
+     *
+     * @param text The text to split, may be null.
+     * @return The list of terms.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (Character.isLetterOrDigit(normalized.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                terms.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            terms.add(normalized.substring(start));
+        }
+        return terms;
+    }
+
+    /**
+     * Lower-cases a text and removes its diacritics.
+     *
+     * @param text The text to normalize.
+     * @return The normalized text.
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                result.append(c);
+            }
+        }
+        return result.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,324 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the trigrams of a vocabulary of terms, used to find the terms
+ * closest to a misspelled one. Terms are padded with two {@code '$'} on
+ * both sides, so a term of n characters has n + 2 trigrams and one edit
+ * changes at most three of them; even a three-letter term keeps two trigrams
+ * after one edit. Candidates are the terms sharing enough trigrams with the
+ * misspelled one; they are then checked with a Levenshtein distance that
+ * gives up past the allowed number of edits.
+ *
+ * Changes must not run concurrently with anything else; lookups can run
+ * concurrently with each other.
+ *
+ * @author Alexander Epelde
+ */
+final class TrigramIndex {
+
+    /**
+     * Padding of the terms, on each side.
+     */
+    private static final String PAD = "$$";
+
+    /**
+     * Term IDs by term.
+     */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Terms by ID.
+     */
+    private String[] terms = new String[16];
+
+    /**
+     * Term IDs released by removed terms, reused before new ones.
+     */
+    private int[] freeIds = new int[16];
+
+    /**
+     * Number of entries of {@link #freeIds}.
+     */
+    private int freeCount;
+
+    /**
+     * Number of IDs ever handed out.
+     */
+    private int idCount;
+
+    /**
+     * Sorted term IDs by trigram.
+     */
+    private final Map<String, IntSet> postings = new HashMap<>();
+
+    /**
+     * Close term found for a misspelled one.
+     */
+    static final class Match {
+
+        private final String term;
+        private final int distance;
+
+        Match(String term, int distance) {
+            this.term = term;
+            this.distance = distance;
+        }
+
+        /**
+         * Gets the term of the vocabulary.
+         *
+         * @return The term.
+         */
+        String getTerm() {
+            return term;
+        }
+
+        /**
+         * Gets the number of edits between the term and the misspelled one.
+         *
+         * @return The Levenshtein distance.
+         */
+        int getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * Removes every term.
+     */
+    void clear() {
+        ids.clear();
+        postings.clear();
+        terms = new String[16];
+        freeCount = 0;
+        idCount = 0;
+    }
+
+    /**
+     * Adds a term that is not in the vocabulary.
+     *
+     * @param term The term.
+     */
+    void add(String term) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (idCount == terms.length) {
+                terms = Arrays.copyOf(terms, idCount * 2);
+            }
+            id = idCount++;
+        }
+        ids.put(term, id);
+        terms[id] = term;
+        for (String trigram : trigrams(term)) {
+            IntSet set = postings.get(trigram);
+            if (set == null) {
+                set = new IntSet();
+                postings.put(trigram, set);
+            }
+            set.add(id);
+        }
+    }
+
+    /**
+     * Removes a term, if it is in the vocabulary.
+     *
+     * @param term The term.
+     */
+    void remove(String term) {
+        Integer id = ids.remove(term);
+        if (id == null) {
+            return;
+        }
+        for (String trigram : trigrams(term)) {
+            IntSet set = postings.get(trigram);
+            set.remove(id);
+            if (set.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+        terms[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Finds the terms of the vocabulary within a number of edits of a term,
+     * closest first.
+     *
+     * @param term The misspelled term.
+     * @param maxDistance The largest number of edits allowed.
+     * @param limit The maximum number of terms to return.
+     * @return The closest terms.
+     */
+    List<Match> closest(String term, int maxDistance, int limit) {
+        List<Match> matches = new ArrayList<>();
+        if (idCount == 0) {
+            return matches;
+        }
+        List<String> trigrams = trigrams(term);
+        List<IntSet> sets = new ArrayList<>(trigrams.size());
+        int candidates = 0;
+        for (String trigram : trigrams) {
+            IntSet set = postings.get(trigram);
+            if (set != null) {
+                sets.add(set);
+                candidates += set.size;
+            }
+        }
+        if (candidates == 0) {
+            return matches;
+        }
+        Counts counts = new Counts(Math.min(candidates, ids.size()));
+        for (IntSet set : sets) {
+            for (int i = 0; i < set.size; i++) {
+                counts.increment(set.values[i]);
+            }
+        }
+        // Every edit changes at most three trigrams, but at least one must be shared.
+        int minShared = Math.max(1, trigrams.size() - 3 * maxDistance);
+        for (int i = 0; i < counts.size; i++) {
+            int slot = counts.used[i];
+            String candidate = terms[counts.keys[slot] - 1];
+            if (counts.counts[slot] >= minShared && Math.abs(candidate.length() - term.length()) <= maxDistance) {
+                int distance = distance(term, candidate, maxDistance);
+                if (distance <= maxDistance) {
+                    matches.add(new Match(candidate, distance));
+                }
+            }
+        }
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance) : a.term.compareTo(b.term));
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    /**
+     * Levenshtein distance of two strings, computed on two rows and
+     * abandoned as soon as it exceeds a bound.
+     *
+     * @return The distance, or {@code max + 1} if it is larger than max.
+     */
+    static int distance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * Splits a padded term into its trigrams, without repeats.
+     */
+    private static List<String> trigrams(String term) {
+        String padded = PAD + term + PAD;
+        List<String> trigrams = new ArrayList<>(term.length() + 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            String trigram = padded.substring(i, i + 3);
+            if (!trigrams.contains(trigram)) {
+                trigrams.add(trigram);
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * Sorted set of term IDs.
+     */
+    private static final class IntSet {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void remove(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Shared trigram counts of one lookup: an open-addressing table from term
+     * ID to count, sized to the postings of the looked up trigrams, and the
+     * list of the slots in use.
+     */
+    private static final class Counts {
+
+        /**
+         * Term ID plus one of each slot; zero marks a free slot.
+         */
+        private final int[] keys;
+        private final int[] counts;
+        private final int[] used;
+        private final int mask;
+        private int size;
+
+        /**
+         * Creates a table for at most the given number of terms, at most
+         * half full.
+         */
+        Counts(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(1, expected)) << 2;
+            keys = new int[capacity];
+            counts = new int[capacity];
+            used = new int[expected];
+            mask = capacity - 1;
+        }
+
+        /**
+         * Adds one to the count of a term ID.
+         */
+        void increment(int id) {
+            int hash = id * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != 0 && keys[slot] != id + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = id + 1;
+                used[size++] = slot;
+            }
+            counts[slot]++;
+        }
+    }
+}
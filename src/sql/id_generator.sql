@@ -0,0 +1,19 @@
+-- Table generator of the entity IDs, see src/conf/orm.xml.
+-- Each row holds the first ID of the next block handed out for an entity.
+-- Run once before deploying; every row starts after the highest existing ID.
+
+CREATE TABLE IF NOT EXISTS our_shop.id_generator (
+    sequence_name VARCHAR(64) NOT NULL,
+    next_val BIGINT NOT NULL,
+    PRIMARY KEY (sequence_name)
+) ENGINE = InnoDB;
+
+INSERT INTO our_shop.id_generator (sequence_name, next_val)
+SELECT 'product', COALESCE(MAX(product_id), 0) + 1 FROM our_shop.product
+UNION ALL
+SELECT 'tag', COALESCE(MAX(tag_id), 0) + 1 FROM our_shop.tag
+UNION ALL
+SELECT 'supplier', COALESCE(MAX(supplier_id), 0) + 1 FROM our_shop.supplier
+UNION ALL
+SELECT 'user', COALESCE(MAX(id), 0) + 1 FROM our_shop.user
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
@@ -0,0 +1,42 @@
+-- Append-only purchase ledger, see entities.PurchaseOrder and entities.OrderLine.
+-- products_bought becomes a total folded from the ledger by ejb.PurchaseLedgerEJB.
+-- Run once before deploying, after id_generator.sql. Existing totals are copied
+-- into the ledger as one already aggregated order per customer, so a rebuild
+-- from the ledger gives them back.
+
+CREATE TABLE IF NOT EXISTS our_shop.purchase_order (
+    order_id INT NOT NULL,
+    customerId INT NOT NULL,
+    createTimestamp DATETIME NOT NULL,
+    PRIMARY KEY (order_id),
+    KEY purchase_order_customer (customerId)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS our_shop.order_line (
+    line_id INT NOT NULL,
+    order_id INT NOT NULL,
+    productId INT NOT NULL,
+    amount INT NOT NULL,
+    aggregated BIT(1) NOT NULL DEFAULT 0,
+    PRIMARY KEY (line_id),
+    KEY order_line_order (order_id),
+    KEY order_line_pending (aggregated, line_id),
+    CONSTRAINT order_line_order_fk FOREIGN KEY (order_id) REFERENCES our_shop.purchase_order (order_id)
+) ENGINE = InnoDB;
+
+INSERT INTO our_shop.purchase_order (order_id, customerId, createTimestamp)
+SELECT customerId, customerId, COALESCE(MAX(boughtTimestamp), NOW())
+FROM our_shop.products_bought
+GROUP BY customerId;
+
+-- Line IDs come from the order_line table generator, seeded below.
+INSERT INTO our_shop.order_line (line_id, order_id, productId, amount, aggregated)
+SELECT @line_id := @line_id + 1, pb.customerId, pb.productId, COALESCE(pb.amount, 0), 1
+FROM our_shop.products_bought pb CROSS JOIN (SELECT @line_id := 0) seq
+ORDER BY pb.customerId, pb.productId;
+
+INSERT INTO our_shop.id_generator (sequence_name, next_val)
+SELECT 'purchase_order', COALESCE(MAX(order_id), 0) + 1 FROM our_shop.purchase_order
+UNION ALL
+SELECT 'order_line', COALESCE(MAX(line_id), 0) + 1 FROM our_shop.order_line
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
@@ -0,0 +1,8 @@
+-- Index serving the keyset pages of the purchase history, see
+-- ejb.ProductsBoughtManagerEJB.getPurchaseHistory: the customer is matched by
+-- equality and the page is read backwards from the cursor on
+-- (boughtTimestamp, productId), without sorting.
+-- Run once before deploying.
+
+CREATE INDEX products_bought_history
+    ON our_shop.products_bought (customerId, boughtTimestamp, productId);